@@ -90,6 +90,16 @@ public class CodeController extends Controller {
         updateVariableUI();
     }
 
+    /**
+     * Deselects the edge selected by the current line, before the graph highlights are reset.
+     */
+    public void clearSelection() {
+        if (lastSelectedEdge != null) {
+            mainController.deselectEdge(lastSelectedEdge);
+            lastSelectedEdge = null;
+        }
+    }
+
     /**
      * update the nodes shown in the root
      */
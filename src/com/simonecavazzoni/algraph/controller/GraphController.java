@@ -19,6 +19,9 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -193,7 +196,7 @@ public class GraphController extends Controller implements Controller.EventListe
 
         MenuItem item2 = new MenuItem(Strings.change_direction);
         item2.setOnAction(event -> changeDirection(edge));
-        if (!graph.isDirected() || graph.getEdges().contains(edge.getInverted())) {
+        if (!graph.isDirected() || graph.getInvertedEdge(edge) != null) {
             item2.setDisable(true);
         }
 
@@ -313,6 +316,7 @@ public class GraphController extends Controller implements Controller.EventListe
             restrictNodePosition(node.getUi());
 
             updateGraphUI();
+            mainController.graphChanged();
 
         } catch (Exception e) {
             //
@@ -324,26 +328,42 @@ public class GraphController extends Controller implements Controller.EventListe
      * @param node Node to remove
      */
     private void removeNode(Node node) {
+        Set<Edge> edges = graph.getAdjacencies().values().stream().flatMap(Set::stream)
+                .filter(e -> e.getN1().equals(node) || e.getN2().equals(node))
+                .collect(Collectors.toSet());
+
         if (graph.removeNode(node)) {
+            edges.forEach(Edge::disposeUi);
             updateGraphUI();
+            mainController.graphChanged();
         }
     }
 
     /**
-     * Removes an edge from graph and updates the UI.
+     * Removes an edge from graph, releases its UI and updates the UI.
      * @param edge Edge to remove
      */
     private void removeEdge(Edge edge) {
+        Edge inverted = graph.isDirected() ? null : graph.getInvertedEdge(edge);
+
         if (graph.removeEdge(edge)) {
+            edge.disposeUi();
+            if (inverted != null) {
+                inverted.disposeUi();
+            }
             updateGraphUI();
+            mainController.edgeChanged(edge.getN1(), edge.getN2());
         }
     }
 
     /**
      * Shows weight modify dialog and updates the edge weight.
+     * The algorithm is notified only if the weight actually changed.
      * @param edge Edge to modify weight to
+     * @return The weight has been changed
      */
-    private void changeWeight(Edge edge) {
+    private boolean changeWeight(Edge edge) {
+        long version = graph.getVersion();
         try {
             int weight = Integer.valueOf(DialogUtils.showTextInputDialog(
                     Strings.change_weight, null, Strings.weight, String.valueOf(edge.getWeight())));
@@ -358,6 +378,12 @@ public class GraphController extends Controller implements Controller.EventListe
         } catch (Exception e) {
             // no-op
         }
+
+        if (graph.getVersion() == version) {
+            return false;
+        }
+        mainController.edgeChanged(edge.getN1(), edge.getN2());
+        return true;
     }
 
     /**
@@ -391,6 +417,7 @@ public class GraphController extends Controller implements Controller.EventListe
     private void stopEdgeCreation(Node endNode) {
         root.setOnMouseMoved(null);
         root.getChildren().remove(tempEdge.getUi());
+        tempEdge.disposeUi();
 
         creatingEdge = false;
 
@@ -437,7 +464,10 @@ public class GraphController extends Controller implements Controller.EventListe
 
         updateGraphUI();
 
-        changeWeight(edge);
+        // The new edge is notified also if the dialog is cancelled and it keeps the default weight
+        if (!changeWeight(edge)) {
+            mainController.edgeChanged(edge.getN1(), edge.getN2());
+        }
     }
 
     /**
@@ -446,8 +476,11 @@ public class GraphController extends Controller implements Controller.EventListe
      */
     private void changeDirection(Edge edge) {
         graph.removeEdge(edge);
+        edge.disposeUi();
         graph.addEdge(edge.getInverted());
         updateGraphUI();
+        mainController.edgeChanged(edge.getN1(), edge.getN2());
+        mainController.edgeChanged(edge.getN2(), edge.getN1());
     }
 
 
@@ -475,21 +508,47 @@ public class GraphController extends Controller implements Controller.EventListe
     public void highlight(Node node, Node parent, boolean highlight, Color color) {
         node.getUi().highlight(highlight, color);
 
+        for (Edge edge : getTreeEdges(node, parent)) {
+            edge.getUi().highlight(highlight, color);
+        }
+    }
+
+    /**
+     * Resets the highlight of a node and of the edges from its parent.
+     * @param node Node to reset
+     * @param parent Parent of the node
+     */
+    public void resetHighlight(Node node, Node parent) {
+        node.getUi().resetHighlight();
+
+        for (Edge edge : getTreeEdges(node, parent)) {
+            edge.getUi().resetHighlight();
+        }
+    }
+
+    /**
+     * @param node Node of the tree
+     * @param parent Parent of the node
+     * @return Edge from the parent, with the inverted one on undirected graphs
+     */
+    private List<Edge> getTreeEdges(Node node, Node parent) {
+        List<Edge> edges = new ArrayList<>(2);
         if (parent == null) {
-            return;
+            return edges;
         }
 
-        graph.getAdjacencies().get(parent).stream()
-                .filter(e -> e.getN2().equals(node))
-                .findAny()
-                .ifPresent(e -> e.getUi().highlight(highlight, color));
+        Edge edge = graph.getEdge(parent, node);
+        if (edge != null) {
+            edges.add(edge);
+        }
 
         if (!graph.isDirected()) {
-            graph.getAdjacencies().get(node).stream()
-                    .filter(e -> e.getN2().equals(parent))
-                    .findAny()
-                    .ifPresent(e -> e.getUi().highlight(highlight, color));
+            Edge inverted = graph.getEdge(node, parent);
+            if (inverted != null) {
+                edges.add(inverted);
+            }
         }
+        return edges;
     }
 
     /**
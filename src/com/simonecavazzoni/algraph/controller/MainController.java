@@ -3,6 +3,7 @@ package com.simonecavazzoni.algraph.controller;
 import com.simonecavazzoni.algraph.model.Edge;
 import com.simonecavazzoni.algraph.ui.AlgorithmInfoUI;
 import com.simonecavazzoni.algraph.utils.AsyncUtils;
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -25,6 +26,7 @@ import javafx.util.StringConverter;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -34,6 +36,8 @@ public class MainController extends Controller {
 
     private final static int MAX_EXECUTION_TIME = 2000;
     private final static int MAX_SPEED_SLIDER = 20;
+    private final static int FRAME_SPEED_SLIDER = 11;
+    private final static long FRAME_BUDGET = 8_000_000;
 
     private GraphController graphController;
     private PriorityQueueController priorityQueueController;
@@ -44,15 +48,26 @@ public class MainController extends Controller {
     private Button generateButton;
     private Button openButton;
     private Button saveButton;
+    private Button stepBackButton;
     private Button stepButton;
     private Button executeButton;
     private Button pauseButton;
     private Slider executionSpeedSlider;
+    private Slider stepSlider;
+    private boolean showingStep;
     private Button resetButton;
     private Button infoButton;
 
-    private boolean executionPaused;
-    private boolean pendingExecution;
+    private AsyncUtils.Cancellable executionTicks;
+    private int pendingSteps;
+    private int stepsPerFrame;
+    private double stepTime;
+    private final AnimationTimer executionTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            showPendingSteps();
+        }
+    };
 
     /**
      * Initializes all the components of the panel.
@@ -164,22 +179,26 @@ public class MainController extends Controller {
         menuPane.setGridLinesVisible(false);
         menuPane.setHgap(5);
 
+        menuPane.add(stepBackButton = buildButton(
+                Strings.step_back, Strings.execute_step_back,
+                "/com/simonecavazzoni/algraph/res/images/menu/ic_skip_previous_black_24dp_1x.png",
+                event -> stepBack()), 0, 0);
         menuPane.add(stepButton = buildButton(
                 Strings.step, Strings.execute_step,
                 "/com/simonecavazzoni/algraph/res/images/menu/ic_skip_next_black_24dp_1x.png",
-                event -> executeStep()), 0, 0);
+                event -> executeStep()), 1, 0);
         menuPane.add(executeButton = buildButton(
                 Strings.execute_all, Strings.execute_all,
                 "/com/simonecavazzoni/algraph/res/images/menu/ic_play_arrow_black_24dp_1x.png",
-                event -> executeAll()), 1, 0);
+                event -> executeAll()), 2, 0);
         menuPane.add(pauseButton = buildButton(
                 Strings.execute_pause, Strings.execute_pause,
                 "/com/simonecavazzoni/algraph/res/images/menu/ic_pause_black_24dp_1x.png",
-                event -> pauseExecution()), 2, 0);
+                event -> pauseExecution()), 3, 0);
         menuPane.add(resetButton = buildButton(
                 Strings.execute_reset, Strings.execute_reset,
                 "/com/simonecavazzoni/algraph/res/images/menu/ic_replay_black_24dp_1x.png",
-                event -> resetExecution(null)), 4, 0);
+                event -> resetExecution(null)), 5, 0);
 
         executionSpeedSlider = new Slider();
         executionSpeedSlider.setMin(1);
@@ -207,9 +226,34 @@ public class MainController extends Controller {
                 return null;
             }
         });
+        executionSpeedSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            // Restarts the ticks of a running execution with the new speed
+            if ((executionTicks != null || stepsPerFrame > 0)
+                    && Math.floor(oldValue.doubleValue()) != Math.floor(newValue.doubleValue())) {
+                stopAnimation();
+                executeAll();
+            }
+        });
         executionSpeedSlider.setPadding(new Insets(0, 10, 0, 10));
-        menuPane.add(executionSpeedSlider, 3, 0);
+        menuPane.add(executionSpeedSlider, 4, 0);
+
+        stepSlider = new Slider();
+        stepSlider.setMin(0);
+        stepSlider.setMax(1);
+        stepSlider.setValue(0);
+        stepSlider.setBlockIncrement(1);
+        stepSlider.setPrefWidth(150);
+        stepSlider.setTooltip(new Tooltip(Strings.execute_go_to_step));
+        stepSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!showingStep) {
+                goToStep((int) Math.round(newValue.doubleValue()));
+            }
+        });
+        stepSlider.setPadding(new Insets(0, 10, 0, 10));
+        menuPane.add(stepSlider, 6, 0);
 
+        stepBackButton.setDisable(true);
+        stepSlider.setDisable(true);
         pauseButton.setDisable(true);
         resetButton.setDisable(true);
 
@@ -221,7 +265,7 @@ public class MainController extends Controller {
         vbox.setAlignment(Pos.BOTTOM_CENTER);
         vbox.setStyle("-fx-padding: 5 0 0 0");
 
-        menuPane.add(vbox, 0, 1, 5, 1);
+        menuPane.add(vbox, 0, 1, 7, 1);
 
         root.setAlignment(Pos.CENTER);
         root.getStyleClass().add("menuSection");
@@ -303,6 +347,7 @@ public class MainController extends Controller {
                     result.getMaxWeight(),
                     result.isDirected()
             ));
+            algorithmHandler.getCache().clear();
 
             resetExecution(null);
 
@@ -321,7 +366,8 @@ public class MainController extends Controller {
                 return;
             }
 
-            graphController.setGraph(FileHandler.loadGraph(file));
+            graphController.setGraph(FileHandler.loadGraph(file, null, ForkJoinPool.commonPool()));
+            algorithmHandler.getCache().clear();
             WindowUtils.setWindowTitle(root, file.getName());
 
             resetExecution(null);
@@ -334,6 +380,7 @@ public class MainController extends Controller {
 
     /**
      * Shows file picker and saves current graph to file.
+     * Files with the binary extension are saved in the binary format.
      */
     private void saveGraphToFile() {
         try {
@@ -347,7 +394,8 @@ public class MainController extends Controller {
                 return;
             }
 
-            FileHandler.saveGraph(graphController.getGraph(), file);
+            FileHandler.saveGraph(graphController.getGraph(), file,
+                    file.getName().endsWith("." + Strings.binary_program_extension));
             WindowUtils.setWindowTitle(root, file.getName());
         } catch (IOException e) {
             e.printStackTrace();
@@ -369,15 +417,58 @@ public class MainController extends Controller {
         algorithmHandler.executeStep();
 
         resetButton.setDisable(!algorithmHandler.isStarted());
+        updateStepControls();
+    }
+
+    /**
+     * Moves the algorithm back of one step.
+     */
+    private void stepBack() {
+        algorithmHandler.stepBack();
+
+        stepButton.setDisable(false);
+        executeButton.setDisable(false);
+        resetButton.setDisable(!algorithmHandler.isStarted());
+        updateStepControls();
+    }
+
+    /**
+     * Moves the algorithm to a recorded step, chosen with the step slider.
+     * @param step Number of executed steps to move to
+     */
+    private void goToStep(int step) {
+        if (step == algorithmHandler.getStep()) {
+            return;
+        }
+
+        algorithmHandler.goToStep(step);
+
+        stepButton.setDisable(algorithmHandler.isFinished());
+        executeButton.setDisable(algorithmHandler.isFinished());
+        resetButton.setDisable(!algorithmHandler.isStarted());
+        updateStepControls();
+    }
+
+    /**
+     * Enables the step back button and moves the step slider to the current step,
+     * the slider is disabled until steps are recorded.
+     */
+    private void updateStepControls() {
+        stepBackButton.setDisable(!algorithmHandler.canStepBack());
+
+        showingStep = true;
+        stepSlider.setMax(Math.max(algorithmHandler.getRecordedSteps(), 1));
+        stepSlider.setValue(algorithmHandler.getStep());
+        stepSlider.setDisable(algorithmHandler.getRecordedSteps() == 0);
+        showingStep = false;
     }
 
     /**
      * Start executing all the steps of the algorithm, based on the selected speed.
+     * Slow speeds show one step after a delay, faster speeds show more steps every frame.
      * If the speed is set to max, executes all the steps instantly.
      */
     private void executeAll() {
-        pendingExecution = false;
-
         if(graphController.getGraph().getAdjacencies().size() == 0){
             return;
         }
@@ -393,56 +484,73 @@ public class MainController extends Controller {
             pauseButton.setDisable(true);
             stepButton.setDisable(true);
             executeButton.setDisable(true);
+            updateStepControls();
             resetButton.setDisable(!algorithmHandler.isStarted());
             return;
         }
 
+        stepBackButton.setDisable(true);
+        stepSlider.setDisable(true);
         stepButton.setDisable(true);
         executeButton.setDisable(true);
         pauseButton.setDisable(false);
 
-        pendingExecution = true;
+        continueExecutionUI();
 
-        int delay = MAX_EXECUTION_TIME / speed;
-        AsyncUtils.setTimeout(() -> {
-            if (executionPaused) {
-                executionPaused = false;
-                pendingExecution = false;
+        algorithmHandler.startWorker();
+        executionTimer.start();
 
-                stepButton.setDisable(false);
-                executeButton.setDisable(false);
-                return;
-            }
+        if (speed >= FRAME_SPEED_SLIDER) {
+            // Steps per frame double at every speed, starting from 2
+            stepsPerFrame = 1 << (speed - FRAME_SPEED_SLIDER + 1);
+            return;
+        }
 
-            pendingExecution = true;
-            algorithmHandler.executeStep();
-        }, delay, new AsyncUtils.AsyncCallback() {
-            @Override
-            public void onComplete() {
-                if (algorithmHandler.isFinished()) {
-                    endExecutionUI();
-                    pendingExecution = false;
-                    return;
-                }
+        // The first step is shown at once, then one step is due at every tick
+        pendingSteps++;
+        executionTicks = AsyncUtils.setInterval(MAX_EXECUTION_TIME / speed, ticks -> pendingSteps += ticks);
+    }
 
-                if (executionPaused) {
-                    pauseExecutionUI();
-                    executionPaused = false;
-                    pendingExecution = false;
-                    return;
-                }
+    /**
+     * Shows the steps due since the last frame, called once per frame while the algorithm is executing.
+     * Steps are executed by the worker thread, so a frame only applies their changes and draws once.
+     * At frame speeds the steps of a frame are limited by the time they took in the previous frames,
+     * so showing them never takes more than the frame budget.
+     */
+    private void showPendingSteps() {
+        if (stepsPerFrame > 0) {
+            pendingSteps = stepTime == 0 ? 1 : (int) Math.max(1, Math.min(stepsPerFrame, FRAME_BUDGET / stepTime));
+        }
 
-                continueExecutionUI();
-                pendingExecution = true;
+        if (pendingSteps > 0) {
+            long start = System.nanoTime();
+            int count = algorithmHandler.advance(pendingSteps);
+            pendingSteps -= count;
 
-                executeAll();
+            if (count > 0) {
+                double time = (double) (System.nanoTime() - start) / count;
+                stepTime = stepTime == 0 ? time : stepTime * 0.75 + time * 0.25;
             }
+        }
 
-            @Override
-            public void onError(Exception e) {
-                e.printStackTrace();
-            }
-        });
+        if (algorithmHandler.isFinished()) {
+            stopAnimation();
+            endExecutionUI();
+        }
+    }
+
+    /**
+     * Stops showing and executing steps, steps already executed by the worker are kept in the trace.
+     */
+    private void stopAnimation() {
+        if (executionTicks != null) {
+            executionTicks.cancel();
+            executionTicks = null;
+        }
+        executionTimer.stop();
+        stepsPerFrame = 0;
+        algorithmHandler.stopWorker();
+        pendingSteps = 0;
     }
 
     /**
@@ -461,6 +569,7 @@ public class MainController extends Controller {
         pauseButton.setDisable(true);
         stepButton.setDisable(true);
         executeButton.setDisable(true);
+        updateStepControls();
     }
 
     /**
@@ -468,9 +577,7 @@ public class MainController extends Controller {
      * @param startNode Node to set as new starting node
      */
     private void resetExecution(Node startNode) {
-        if (pendingExecution) {
-            executionPaused = true;
-        }
+        stopAnimation();
 
         algorithmHandler.restartAlgorithm(startNode);
 
@@ -484,6 +591,7 @@ public class MainController extends Controller {
      * Sets UI in reset execution state
      */
     private void resetExecutionUI() {
+        updateStepControls();
         resetButton.setDisable(true);
         pauseButton.setDisable(true);
         stepButton.setDisable(false);
@@ -491,13 +599,12 @@ public class MainController extends Controller {
     }
 
     /**
-     * Sets flag to pause execution
+     * Pauses the execution, cancelling the pending ticks
      */
     private void pauseExecution() {
+        stopAnimation();
         pauseButton.setDisable(true);
-        if (pendingExecution) {
-            executionPaused = true;
-        }
+        pauseExecutionUI();
     }
 
     /**
@@ -506,6 +613,7 @@ public class MainController extends Controller {
     private void pauseExecutionUI() {
         stepButton.setDisable(false);
         executeButton.setDisable(false);
+        updateStepControls();
     }
 
     /**
@@ -534,6 +642,24 @@ public class MainController extends Controller {
         }
     }
 
+    /**
+     * Called by the graph panel when the edges between two nodes have been added, removed or changed weight.
+     * @param n1 First node
+     * @param n2 Second node
+     */
+    public void edgeChanged(Node n1, Node n2) {
+        algorithmHandler.updateEdge(n1, n2);
+        updateStepControls();
+    }
+
+    /**
+     * Called by the graph panel when nodes have been added or removed.
+     */
+    public void graphChanged() {
+        algorithmHandler.updateGraph();
+        updateStepControls();
+    }
+
     /**
      * Gets if graph can be modified
      * @return Graph is editable
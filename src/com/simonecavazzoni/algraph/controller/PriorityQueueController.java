@@ -76,6 +76,15 @@ public class PriorityQueueController extends Controller {
         return priorityQueue;
     }
 
+    /**
+     * Replaces the queue implementation and empties it.
+     * @param priorityQueue New PriorityQueue
+     */
+    public void setQueue(PriorityQueue<Node> priorityQueue) {
+        this.priorityQueue = priorityQueue;
+        clear();
+    }
+
     /**
      * delete all nodes shown in the root
      */
@@ -108,6 +117,17 @@ public class PriorityQueueController extends Controller {
         return itemPopped;
     }
 
+    /**
+     * Shows the queue again, also after it has been changed directly.
+     * @param node  This is the node to show as extracted, null to show none
+     * @param priority  This is the priority of the node
+     */
+    public void setSelected(Node node, int priority){
+        selectedNode = node == null
+                ? new PriorityItemUI<Node>() : new PriorityItem<>(node, priority).getPriorityItemUI();
+        updatePriorityItemUI();
+    }
+
     /**
      * @param item  This is the item to search in the PriorityQueue
      * @param newPriority This is the new priority of the item searched
@@ -0,0 +1,96 @@
+package com.simonecavazzoni.algraph.model;
+
+/**
+ * Read only graph in compressed sparse row layout, used by headless algorithms.
+ * Nodes are dense ids from 0 to getNodeCount() excluded,
+ * the arcs leaving a node are the edge indexes from getEdgeStart(node) to getEdgeEnd(node) excluded.
+ */
+public interface CsrGraph {
+
+    /**
+     * @return Number of nodes
+     */
+    int getNodeCount();
+
+    /**
+     * @return Number of arcs, an undirected edge counts as two arcs
+     */
+    int getEdgeCount();
+
+    /**
+     * @param node Node id
+     * @return Index of the first arc leaving the node
+     */
+    int getEdgeStart(int node);
+
+    /**
+     * @param node Node id
+     * @return Index after the last arc leaving the node
+     */
+    int getEdgeEnd(int node);
+
+    /**
+     * @param edge Arc index
+     * @return Id of the node the arc points to
+     */
+    int getTarget(int edge);
+
+    /**
+     * @param edge Arc index
+     * @return Weight of the arc
+     */
+    int getWeight(int edge);
+
+    /**
+     * @return Maximum arc weight, 0 if the graph has no arcs
+     */
+    int getMaxWeight();
+
+    /**
+     * @return True if the graph is directed
+     */
+    boolean isDirected();
+
+    /**
+     * @param node Node id
+     * @return Label of the node
+     */
+    String getLabel(int node);
+
+    /**
+     * @param node Node id
+     * @return Node model with this id
+     */
+    Node getNode(int node);
+
+    /**
+     * Graph with every arc inverted, used by backward searches.
+     * @return Reversed graph, the graph itself if undirected
+     */
+    CsrGraph reverse();
+
+    /**
+     * Hash of the content of the graph, used to check that data saved to a file refers to the same graph.
+     * The arcs of a node are combined in any order, as their order in the snapshot depends on the adjacency sets
+     * and changes when the same graph is loaded again.
+     * @return Hash of direction, labels, arcs and weights
+     */
+    default long getFingerprint() {
+        long hash = isDirected() ? 1 : 0;
+
+        for (int u = 0; u < getNodeCount(); u++) {
+            long arcs = 0;
+            for (int e = getEdgeStart(u), end = getEdgeEnd(u); e < end; e++) {
+                // Mixed before being summed, so that swapping targets or weights between arcs changes the sum
+                long arc = ((long) getTarget(e) << 32 | getWeight(e) & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+                arcs += arc ^ arc >>> 29;
+            }
+
+            hash = hash * 31 + getLabel(u).hashCode();
+            hash = hash * 31 + getEdgeEnd(u) - getEdgeStart(u);
+            hash = hash * 31 + arcs;
+        }
+
+        return hash;
+    }
+}
@@ -17,7 +17,9 @@ public class Edge {
     private int weight;
     private final boolean directed;
 
-    private final EdgeUI ui;
+    private Graph graph;
+
+    private EdgeUI ui;
 
     public Edge(Node n1, Node n2) {
         this(n1, n2, DEFAULT_WEIGHT);
@@ -39,8 +41,6 @@ public class Edge {
         this.n2 = n2;
         this.weight = weight;
         this.directed = directed;
-
-        this.ui = new EdgeUI(this);
     }
 
     public Node getN1() {
@@ -60,6 +60,9 @@ public class Edge {
             return false;
         }
 
+        if (graph != null && weight != this.weight) {
+            graph.modified();
+        }
         this.weight = weight;
         if (ui != null) {
             this.ui.setWeight(weight);
@@ -68,14 +71,46 @@ public class Edge {
         return true;
     }
 
+    /**
+     * @param graph Graph containing the edge, notified when the weight changes
+     */
+    void setGraph(Graph graph) {
+        this.graph = graph;
+    }
+
     public boolean isDirected() {
         return directed;
     }
 
+    /**
+     * UI component of the edge, created on first use so that the model can be used without the UI toolkit.
+     * @return Edge UI
+     */
     public EdgeUI getUi() {
+        if (ui == null) {
+            ui = new EdgeUI(this);
+        }
         return ui;
     }
 
+    /**
+     * @return True if the UI component has already been created
+     */
+    public boolean hasUi() {
+        return ui != null;
+    }
+
+    /**
+     * Releases the UI component, if created, detaching it from the nodes UI.
+     * Called when the edge leaves the graph, a new UI is created if the edge is shown again.
+     */
+    public void disposeUi() {
+        if (ui != null) {
+            ui.dispose();
+            ui = null;
+        }
+    }
+
     public Edge getInverted() {
         return new Edge(n2, n1, weight, directed);
     }
@@ -0,0 +1,205 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.util.Set;
+
+/**
+ * Immutable compressed sparse row snapshot of a Graph.
+ * Arcs are stored in three flat arrays (offsets, targets, weights), node ids are the ones of the graph.
+ * @see Graph#freeze()
+ */
+public class FrozenGraph implements CsrGraph {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final Node[] nodes;
+    private final Edge[] edges;
+    private final boolean directed;
+    private final int maxWeight;
+
+    private volatile FrozenGraph reversed;
+
+    /**
+     * Builds the snapshot of the current state of a graph.
+     * @param graph Graph to copy
+     */
+    FrozenGraph(Graph graph) {
+        int n = graph.getNodeCount();
+
+        nodes = new Node[n];
+        offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = graph.getNode(i);
+            offsets[i + 1] = offsets[i] + graph.getAdjacencies().get(nodes[i]).size();
+        }
+
+        targets = new int[offsets[n]];
+        weights = new int[offsets[n]];
+        edges = new Edge[offsets[n]];
+
+        int max = 0;
+        for (int i = 0; i < n; i++) {
+            Set<Edge> adjacencies = graph.getAdjacencies().get(nodes[i]);
+            int e = offsets[i];
+            for (Edge edge : adjacencies) {
+                targets[e] = edge.getN2().getId();
+                weights[e] = edge.getWeight();
+                edges[e] = edge;
+                max = Math.max(max, weights[e]);
+                e++;
+            }
+        }
+
+        directed = graph.isDirected();
+        maxWeight = max;
+    }
+
+    private FrozenGraph(int[] offsets, int[] targets, int[] weights, Node[] nodes, Edge[] edges,
+                        boolean directed, int maxWeight) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.directed = directed;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return Arcs of node i are from offsets[i] to offsets[i + 1] excluded
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * @return Target node id of every arc
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * @return Weight of every arc
+     */
+    public int[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param edge Arc index
+     * @return Edge model of the arc, in its original direction
+     */
+    public Edge getEdge(int edge) {
+        return edges[edge];
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public int getEdgeStart(int node) {
+        return offsets[node];
+    }
+
+    @Override
+    public int getEdgeEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    @Override
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return weights[edge];
+    }
+
+    @Override
+    public int getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public String getLabel(int node) {
+        return nodes[node].getLabel();
+    }
+
+    @Override
+    public Node getNode(int node) {
+        return nodes[node];
+    }
+
+    /**
+     * Builds the transposed graph on first use.
+     * @return Reversed graph, the graph itself if undirected
+     */
+    @Override
+    public FrozenGraph reverse() {
+        if (!directed) {
+            return this;
+        }
+
+        FrozenGraph result = reversed;
+        if (result == null) {
+            synchronized (this) {
+                result = reversed;
+                if (result == null) {
+                    reversed = result = transpose();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Graph with every arc inverted
+     */
+    private FrozenGraph transpose() {
+        int n = nodes.length;
+        int m = targets.length;
+
+        int[] reverseOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            reverseOffsets[targets[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+
+        int[] next = new int[n];
+        System.arraycopy(reverseOffsets, 0, next, 0, n);
+
+        int[] reverseTargets = new int[m];
+        int[] reverseWeights = new int[m];
+        Edge[] reverseEdges = new Edge[m];
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int r = next[targets[e]]++;
+                reverseTargets[r] = u;
+                reverseWeights[r] = weights[e];
+                reverseEdges[r] = edges[e];
+            }
+        }
+
+        FrozenGraph transposed = new FrozenGraph(reverseOffsets, reverseTargets, reverseWeights, nodes, reverseEdges,
+                true, maxWeight);
+        transposed.reversed = this;
+        return transposed;
+    }
+}
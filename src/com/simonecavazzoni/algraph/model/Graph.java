@@ -8,9 +8,14 @@ import java.util.stream.Collectors;
  */
 public class Graph {
     private Map<Node, Set<Edge>> adjacencies;
+    private Map<String, Node> labels;
+    private List<Node> nodes;
 
     private boolean directed;
 
+    private long version;
+    private FrozenGraph frozen;
+    private long frozenVersion;
 
     /**
      * Void constructor
@@ -26,9 +31,12 @@ public class Graph {
         this.directed = directed;
 
         this.adjacencies = new HashMap<>();
+        this.labels = new HashMap<>();
+        this.nodes = new ArrayList<>();
     }
 
     /**
+     * Changes made directly to the returned map are not tracked by freeze().
      * @return return the adjacencies of the current graph
      */
     public Map<Node, Set<Edge>> getAdjacencies() {
@@ -74,6 +82,44 @@ public class Graph {
         }
 
         this.directed = directed;
+        modified();
+    }
+
+    /**
+     * Compact read only snapshot of the graph, used by headless algorithms.
+     * The snapshot is rebuilt only if the graph has been modified since the last call.
+     * @return CSR snapshot of the current graph
+     */
+    public FrozenGraph freeze() {
+        if (frozen == null || frozenVersion != version) {
+            frozen = new FrozenGraph(this);
+            frozenVersion = version;
+        }
+
+        return frozen;
+    }
+
+    /**
+     * Version of the graph, used to know if data computed on it is out of date.
+     * Two equal versions of the same graph always have the same nodes, edges and weights.
+     * @return Version, increased by every mutator and by edges changing weight, never decreased
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Marks the graph as modified, called by every mutator and by edges changing weight.
+     */
+    void modified() {
+        version++;
+    }
+
+    /**
+     * @return Number of nodes, node ids go from 0 to this value excluded
+     */
+    public int getNodeCount() {
+        return nodes.size();
     }
 
     /**
@@ -82,12 +128,35 @@ public class Graph {
      * @return Selected node (if exists)
      */
     public Node getNode(String label) {
-        return getNode(new Node(label));
+        return labels.get(Node.normalizeLabel(label));
     }
 
+    /**
+     * Get the node of the graph equal to another node
+     * @param node Node to search
+     * @return Selected node (if exists)
+     */
     public Node getNode(Node node) {
-        Optional<Node> optionalNode = getNodes().stream().filter(n -> n.equals(node)).findAny();
-        return optionalNode.orElse(null);
+        return node == null ? null : labels.get(node.getLabel());
+    }
+
+    /**
+     * Get a node by id
+     * @param id Id of the node
+     * @return Selected node
+     */
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Get the id of a node by label
+     * @param label Label of the node
+     * @return Id of the node, -1 if the node does not exist
+     */
+    public int getNodeId(String label) {
+        Node node = getNode(label);
+        return node == null ? -1 : node.getId();
     }
 
     /**
@@ -95,37 +164,58 @@ public class Graph {
      * @return The node has been successfully added
      */
     public Node addNode(String label) {
+        if (labels.containsKey(Node.normalizeLabel(label))) {
+            return null;
+        }
+
         return addNode(new Node(label));
     }
 
     public Node addNode(Node node) {
-        if (adjacencies.containsKey(node)) {
+        if (labels.containsKey(node.getLabel())) {
             return null;
         }
 
+        node.setId(nodes.size());
+        nodes.add(node);
+        labels.put(node.getLabel(), node);
         adjacencies.put(node, new HashSet<>());
+        modified();
 
         return node;
     }
 
     public boolean removeNode(String label) {
-        return removeNode(new Node(label));
+        Node node = getNode(label);
+        return node != null && removeNode(node);
     }
 
     /**
+     * Removes a node and all the edges to it.
+     * The last node takes the id of the removed one, so that ids stay dense.
      * @param node Node to remove
      * @return The node has been successfully removed
      */
     public boolean removeNode(Node node) {
-        if (!adjacencies.containsKey(node)) {
+        Node removed = getNode(node);
+        if (removed == null) {
             return false;
         }
 
-        adjacencies.remove(node);
+        Node last = nodes.remove(nodes.size() - 1);
+        if (last != removed) {
+            nodes.set(removed.getId(), last);
+            last.setId(removed.getId());
+        }
+        removed.setId(-1);
+        labels.remove(removed.getLabel());
+
+        adjacencies.remove(removed);
         for (Node n : adjacencies.keySet()) {
-           adjacencies.put(n, adjacencies.get(n).stream().filter(e -> !e.getN2().equals(node))
+           adjacencies.put(n, adjacencies.get(n).stream().filter(e -> !e.getN2().equals(removed))
                            .collect(Collectors.toSet()));
         }
+        modified();
 
         return true;
     }
@@ -135,8 +225,28 @@ public class Graph {
      * @return Inverted edge
      */
     public Edge getInvertedEdge(Edge edge) {
-        return getAdjacencies().get(edge.getN2()).stream()
-                .filter(e -> e.getN2().equals(edge.getN1())).findAny().orElse(null);
+        return getEdge(edge.getN2(), edge.getN1());
+    }
+
+    /**
+     * Get the edge of the graph from first to second node, without building a temporary edge.
+     * @param n1 First node
+     * @param n2 Second node
+     * @return Selected edge (if exists)
+     */
+    public Edge getEdge(Node n1, Node n2) {
+        Set<Edge> edges = adjacencies.get(n1);
+        if (edges == null) {
+            return null;
+        }
+
+        for (Edge e : edges) {
+            if (e.getN2().equals(n2)) {
+                return e;
+            }
+        }
+
+        return null;
     }
 
     public Edge addEdge(String label1, String label2) {
@@ -167,29 +277,106 @@ public class Graph {
         if (!adjacencies.get(edge.getN1()).add(edge)) {
             return null;
         }
+        edge.setGraph(this);
+        modified();
+
         if (!directed) {
-            if (!adjacencies.get(edge.getN2()).add(edge.getInverted())) {
+            Edge inverted = edge.getInverted();
+            if (!adjacencies.get(edge.getN2()).add(inverted)) {
                 return null;
             }
+            inverted.setGraph(this);
         }
 
         return edge;
     }
 
+    /**
+     * Adds many edges at once, used by the loaders.
+     * The adjacency set of every node without edges is created with room for all its new edges,
+     * edges already in the graph are skipped as by addEdge().
+     * @param sources Id of the first node of every edge
+     * @param targets Id of the second node of every edge
+     * @param weights Weight of every edge
+     * @param count Number of edges
+     */
+    public void addEdges(int[] sources, int[] targets, int[] weights, int count) {
+        addEdges(new int[][] {sources}, new int[][] {targets}, new int[][] {weights}, new int[] {count});
+    }
+
+    /**
+     * Adds many edges at once as addEdges(int[], int[], int[], int), with the edges split in chunks
+     * that are added in order without being copied together.
+     * @param sources Id of the first node of every edge, for every chunk
+     * @param targets Id of the second node of every edge, for every chunk
+     * @param weights Weight of every edge, for every chunk
+     * @param counts Number of edges of every chunk
+     */
+    public void addEdges(int[][] sources, int[][] targets, int[][] weights, int[] counts) {
+        int[] degrees = new int[nodes.size()];
+        for (int chunk = 0; chunk < counts.length; chunk++) {
+            for (int i = 0; i < counts[chunk]; i++) {
+                degrees[sources[chunk][i]]++;
+                if (!directed) {
+                    degrees[targets[chunk][i]]++;
+                }
+            }
+        }
+
+        List<Set<Edge>> sets = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            Set<Edge> edges = adjacencies.get(node);
+            int degree = degrees[node.getId()];
+            if (edges.isEmpty() && degree > 0) {
+                edges = new HashSet<>(degree * 4 / 3 + 1);
+                adjacencies.put(node, edges);
+            }
+            sets.add(edges);
+        }
+
+        for (int chunk = 0; chunk < counts.length; chunk++) {
+            for (int i = 0; i < counts[chunk]; i++) {
+                int source = sources[chunk][i];
+                int target = targets[chunk][i];
+
+                Edge edge = new Edge(nodes.get(source), nodes.get(target), weights[chunk][i], directed);
+                if (!sets.get(source).add(edge)) {
+                    continue;
+                }
+                edge.setGraph(this);
+
+                if (!directed) {
+                    Edge inverted = edge.getInverted();
+                    if (sets.get(target).add(inverted)) {
+                        inverted.setGraph(this);
+                    }
+                }
+            }
+        }
+        modified();
+    }
+
     public boolean removeEdge(String label1, String label2) {
-        return removeEdge(new Node(label1), new Node(label2));
+        Node node1 = getNode(label1);
+        Node node2 = getNode(label2);
+
+        return node1 != null && node2 != null && removeEdge(node1, node2);
     }
 
     public boolean removeEdge(Node n1, Node n2) {
-        return removeEdge(new Edge(n1, n2));
+        Edge edge = getEdge(n1, n2);
+        return edge != null && removeEdge(edge);
     }
 
     public boolean removeEdge(Edge edge) {
         if (!adjacencies.get(edge.getN1()).remove(edge)) {
             return false;
         }
+        modified();
+
         if (!directed) {
-            return adjacencies.get(edge.getN2()).remove(edge.getInverted());
+            Edge inverted = getInvertedEdge(edge);
+            return inverted != null && adjacencies.get(edge.getN2()).remove(inverted);
         }
 
         return true;
@@ -0,0 +1,167 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a PriorityQueue backed by an IntPriorityQueue.
+ * Every item gets a dense id, kept in a position map for O(1) search,
+ * while ordering is delegated to the integer queue (O(log n) pop and update with an IntHeap).
+ * @param <T> Type of PriorityItem
+ */
+public class IndexedPriorityQueue<T> extends PriorityQueue<T> {
+
+    private final IntPriorityQueue queue;
+
+    private final Map<T, Integer> ids;
+    private final ArrayList<PriorityItem<T>> items;
+
+    /**
+     * Instantiates the queue with a binary heap.
+     */
+    public IndexedPriorityQueue() {
+        this(new IntHeap());
+    }
+
+    /**
+     * @param queue Integer queue used to order the items
+     */
+    public IndexedPriorityQueue(IntPriorityQueue queue) {
+        this.queue = queue;
+
+        ids = new HashMap<>();
+        items = new ArrayList<>();
+    }
+
+    /**
+     * Inserts a new item, updates its priority if already in the queue.
+     * @param object This is the generic item to insert in the queue
+     * @param priority This is the priority of the new item
+     */
+    @Override
+    public void push(T object, int priority) {
+        Integer id = ids.get(object);
+        if (id == null) {
+            id = items.size();
+            ids.put(object, id);
+            items.add(null);
+        }
+
+        if (queue.contains(id)) {
+            update(object, priority);
+            return;
+        }
+
+        items.set(id, new PriorityItem<>(object, priority));
+        queue.push(id, priority);
+    }
+
+    /**
+     * @return This returns the PriorityItem with the lower priority
+     */
+    @Override
+    public PriorityItem<T> pop() {
+        int id = queue.pop();
+        return id == -1 ? null : items.get(id);
+    }
+
+    /**
+     * @param item  This is the item to search in the queue
+     * @return This is the object searched
+     */
+    @Override
+    public PriorityItem<T> read(T item) {
+        Integer id = ids.get(item);
+        return id != null && queue.contains(id) ? items.get(id) : null;
+    }
+
+    /**
+     * @param item This is the item to search in the queue
+     * @return This returns true only if the item is in the queue
+     */
+    @Override
+    public boolean existItem(T item) {
+        Integer id = ids.get(item);
+        return id != null && queue.contains(id);
+    }
+
+    /**
+     * @param priorityItem The priorityItem to remove in the queue
+     */
+    @Override
+    public void remove(PriorityItem<T> priorityItem) {
+        if (priorityItem != null) {
+            remove(priorityItem.getItem());
+        }
+    }
+
+    /**
+     * @param item The item to remove in the queue
+     */
+    @Override
+    public void remove(T item) {
+        Integer id = ids.get(item);
+        if (id != null) {
+            queue.remove(id);
+        }
+    }
+
+    /**
+     * @return This returns true only if the queue isn't empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public void update(PriorityItem<T> item, int newPriority) {
+        update(item.getItem(), newPriority);
+    }
+
+    /**
+     * @param item This is the item to search in the queue
+     * @param priority This is the new priority of the item searched
+     */
+    @Override
+    public void update(T item, int priority) {
+        Integer id = ids.get(item);
+        if (id != null && queue.contains(id)) {
+            queue.update(id, priority);
+            items.get(id).setPriority(priority);
+        }
+    }
+
+    /**
+     * @return This returns the items in the queue, in insertion order
+     */
+    @Override
+    public ArrayList<PriorityItem<T>> getAll() {
+        ArrayList<PriorityItem<T>> all = new ArrayList<>(queue.size());
+        for (int id = 0; id < items.size(); id++) {
+            if (queue.contains(id)) {
+                all.add(items.get(id));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * @return This returns the items inserted since the queue was emptied, extracted ones included,
+     * in insertion order
+     */
+    public ArrayList<PriorityItem<T>> getInserted() {
+        return new ArrayList<>(items);
+    }
+
+    /**
+     * This remove all PriorityItem in queue
+     */
+    @Override
+    public void clear() {
+        queue.clear();
+        ids.clear();
+        items.clear();
+    }
+}
@@ -0,0 +1,207 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.util.Arrays;
+
+/**
+ * Monotone bucket queue (Dial's algorithm) of integer ids.
+ * Keeps maxStep + 1 circular buckets, every operation is O(1) and extraction scans at most maxStep empty buckets.
+ * Priorities pushed must be between the last extracted priority and that priority plus maxStep,
+ * as in Dijkstra with edge weights not greater than maxStep.
+ */
+public class IntBucketQueue implements IntPriorityQueue {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int maxStep;
+
+    private final int[] heads;
+    private int[] next;
+    private int[] previous;
+    private int[] priorities;
+    private boolean[] contained;
+
+    private int current;
+    private int size;
+
+    /**
+     * @param maxStep Maximum difference between a pushed priority and the last extracted one
+     */
+    public IntBucketQueue(int maxStep) {
+        this(DEFAULT_CAPACITY, maxStep);
+    }
+
+    /**
+     * @param capacity Expected number of distinct ids, the queue grows if needed
+     * @param maxStep Maximum difference between a pushed priority and the last extracted one
+     */
+    public IntBucketQueue(int capacity, int maxStep) {
+        if (maxStep < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxStep = maxStep;
+
+        heads = new int[maxStep + 1];
+        Arrays.fill(heads, -1);
+
+        capacity = Math.max(capacity, 1);
+        next = new int[capacity];
+        previous = new int[capacity];
+        priorities = new int[capacity];
+        contained = new boolean[capacity];
+    }
+
+    @Override
+    public void push(int id, int priority) {
+        ensureCapacity(id);
+
+        if (contained[id]) {
+            update(id, priority);
+            return;
+        }
+
+        checkPriority(priority);
+
+        priorities[id] = priority;
+        link(id);
+        contained[id] = true;
+        size++;
+    }
+
+    @Override
+    public int pop() {
+        if (size == 0) {
+            return -1;
+        }
+
+        int bucket = bucket(current);
+        while (heads[bucket] == -1) {
+            current++;
+            bucket = bucket == maxStep ? 0 : bucket + 1;
+        }
+
+        int id = heads[bucket];
+        unlink(id);
+        contained[id] = false;
+        size--;
+
+        return id;
+    }
+
+    @Override
+    public void update(int id, int priority) {
+        if (!contains(id)) {
+            return;
+        }
+
+        checkPriority(priority);
+
+        unlink(id);
+        priorities[id] = priority;
+        link(id);
+    }
+
+    @Override
+    public void remove(int id) {
+        if (contains(id)) {
+            unlink(id);
+            contained[id] = false;
+            size--;
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id >= 0 && id < contained.length && contained[id];
+    }
+
+    @Override
+    public int getPriority(int id) {
+        return priorities[id];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket <= maxStep; bucket++) {
+            for (int id = heads[bucket]; id != -1; id = next[id]) {
+                contained[id] = false;
+            }
+            heads[bucket] = -1;
+        }
+
+        current = 0;
+        size = 0;
+    }
+
+    /**
+     * Checks that a priority falls in the bucket range, an empty queue restarts from the priority.
+     * @param priority Priority to check
+     */
+    private void checkPriority(int priority) {
+        if (size == 0 && priority >= 0 && (priority < current || priority - current > maxStep)) {
+            current = priority;
+        }
+        if (priority < current || priority - current > maxStep) {
+            throw new IllegalArgumentException("Priority " + priority + " out of range [" + current + ", "
+                    + (current + maxStep) + "]");
+        }
+    }
+
+    /**
+     * @param priority Priority of an element
+     * @return Circular bucket of the priority
+     */
+    private int bucket(int priority) {
+        return priority % (maxStep + 1);
+    }
+
+    /**
+     * @param id Id to insert at the head of its bucket
+     */
+    private void link(int id) {
+        int bucket = bucket(priorities[id]);
+        int head = heads[bucket];
+
+        next[id] = head;
+        previous[id] = -1;
+        if (head != -1) {
+            previous[head] = id;
+        }
+        heads[bucket] = id;
+    }
+
+    /**
+     * @param id Id to remove from its bucket
+     */
+    private void unlink(int id) {
+        if (previous[id] != -1) {
+            next[previous[id]] = next[id];
+        } else {
+            heads[bucket(priorities[id])] = next[id];
+        }
+        if (next[id] != -1) {
+            previous[next[id]] = previous[id];
+        }
+    }
+
+    /**
+     * Grows the id indexed arrays to contain an id.
+     * @param id Id to contain
+     */
+    private void ensureCapacity(int id) {
+        if (id < contained.length) {
+            return;
+        }
+
+        int capacity = Math.max(id + 1, contained.length * 2);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        contained = Arrays.copyOf(contained, capacity);
+    }
+}
@@ -0,0 +1,223 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary heap of integer ids.
+ * A position array gives O(1) membership and O(log n) insert, extraction and priority update.
+ */
+public class IntHeap implements IntPriorityQueue {
+
+    private static final int DEFAULT_ARITY = 2;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int arity;
+
+    private int[] heap;
+    private int[] positions;
+    private int[] priorities;
+    private int size;
+
+    public IntHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Expected number of distinct ids, the heap grows if needed
+     */
+    public IntHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * @param capacity Expected number of distinct ids, the heap grows if needed
+     * @param arity Number of children of every heap node
+     */
+    public IntHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException();
+        }
+
+        this.arity = arity;
+
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    @Override
+    public void push(int id, int priority) {
+        ensureCapacity(id);
+
+        if (positions[id] != -1) {
+            update(id, priority);
+            return;
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+
+        priorities[id] = priority;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    @Override
+    public int pop() {
+        if (size == 0) {
+            return -1;
+        }
+
+        int min = heap[0];
+        removeAt(0);
+        return min;
+    }
+
+    @Override
+    public void update(int id, int priority) {
+        if (!contains(id)) {
+            return;
+        }
+
+        int oldPriority = priorities[id];
+        priorities[id] = priority;
+
+        if (priority < oldPriority) {
+            siftUp(positions[id]);
+        } else {
+            siftDown(positions[id]);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        if (contains(id)) {
+            removeAt(positions[id]);
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id >= 0 && id < positions.length && positions[id] != -1;
+    }
+
+    @Override
+    public int getPriority(int id) {
+        return priorities[id];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param i Heap index of the element to remove
+     */
+    private void removeAt(int i) {
+        int id = heap[i];
+        positions[id] = -1;
+
+        size--;
+        if (i == size) {
+            return;
+        }
+
+        int last = heap[size];
+        heap[i] = last;
+        positions[last] = i;
+
+        if (priorities[last] < priorities[id]) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @param i Heap index of the element to move towards the root
+     */
+    private void siftUp(int i) {
+        int id = heap[i];
+        int priority = priorities[id];
+
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            int parentId = heap[parent];
+            if (priorities[parentId] <= priority) {
+                break;
+            }
+
+            heap[i] = parentId;
+            positions[parentId] = i;
+            i = parent;
+        }
+
+        heap[i] = id;
+        positions[id] = i;
+    }
+
+    /**
+     * @param i Heap index of the element to move towards the leaves
+     */
+    private void siftDown(int i) {
+        int id = heap[i];
+        int priority = priorities[id];
+
+        while (true) {
+            int first = i * arity + 1;
+            if (first >= size) {
+                break;
+            }
+
+            int min = first;
+            int last = Math.min(first + arity, size);
+            for (int c = first + 1; c < last; c++) {
+                if (priorities[heap[c]] < priorities[heap[min]]) {
+                    min = c;
+                }
+            }
+
+            int minId = heap[min];
+            if (priorities[minId] >= priority) {
+                break;
+            }
+
+            heap[i] = minId;
+            positions[minId] = i;
+            i = min;
+        }
+
+        heap[i] = id;
+        positions[id] = i;
+    }
+
+    /**
+     * Grows the id indexed arrays to contain an id.
+     * @param id Id to contain
+     */
+    private void ensureCapacity(int id) {
+        if (id < positions.length) {
+            return;
+        }
+
+        int capacity = Math.max(id + 1, positions.length * 2);
+        int oldCapacity = positions.length;
+
+        positions = Arrays.copyOf(positions, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.simonecavazzoni.algraph.model;
+
+/**
+ * Priority queue of dense integer ids (0, 1, 2...) with integer priorities.
+ * Every id can be contained at most once, its priority can be changed while it is in the queue.
+ */
+public interface IntPriorityQueue {
+
+    /**
+     * Inserts an id, updates its priority if already contained.
+     * @param id Id to insert
+     * @param priority Priority of the id
+     */
+    void push(int id, int priority);
+
+    /**
+     * Extracts the id with the lower priority.
+     * @return Extracted id, -1 if the queue is empty
+     */
+    int pop();
+
+    /**
+     * Changes the priority of a contained id, does nothing if the id is not in the queue.
+     * @param id Id to update
+     * @param priority New priority
+     */
+    void update(int id, int priority);
+
+    /**
+     * Removes an id from the queue, if contained.
+     * @param id Id to remove
+     */
+    void remove(int id);
+
+    /**
+     * @param id Id to search
+     * @return True only if the id is in the queue
+     */
+    boolean contains(int id);
+
+    /**
+     * Last priority assigned to an id, still available after the id has been extracted.
+     * @param id Id to get the priority of
+     * @return Priority of the id
+     */
+    int getPriority(int id);
+
+    /**
+     * @return Number of ids in the queue
+     */
+    int size();
+
+    /**
+     * @return True only if the queue is empty
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all ids from the queue
+     */
+    void clear();
+}
@@ -0,0 +1,216 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.util.Arrays;
+
+/**
+ * Monotone radix heap of integer ids with non negative priorities.
+ * Elements are kept in 33 buckets by the highest bit where their priority differs from the last extracted one,
+ * every element moves to a lower bucket at most 32 times: insert and update are O(1), extraction O(log C) amortized.
+ * Priorities pushed must not be lower than the last extracted priority, as in Dijkstra.
+ */
+public class IntRadixHeap implements IntPriorityQueue {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int BUCKETS = 33;
+
+    private final int[] heads;
+    private int[] next;
+    private int[] previous;
+    private int[] priorities;
+    private int[] buckets;
+
+    private int last;
+    private int size;
+
+    public IntRadixHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Expected number of distinct ids, the heap grows if needed
+     */
+    public IntRadixHeap(int capacity) {
+        heads = new int[BUCKETS];
+        Arrays.fill(heads, -1);
+
+        capacity = Math.max(capacity, 1);
+        next = new int[capacity];
+        previous = new int[capacity];
+        priorities = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+    }
+
+    @Override
+    public void push(int id, int priority) {
+        ensureCapacity(id);
+
+        if (buckets[id] != -1) {
+            update(id, priority);
+            return;
+        }
+
+        checkPriority(priority);
+
+        priorities[id] = priority;
+        link(id);
+        size++;
+    }
+
+    @Override
+    public int pop() {
+        if (size == 0) {
+            return -1;
+        }
+
+        if (heads[0] == -1) {
+            int bucket = 1;
+            while (heads[bucket] == -1) {
+                bucket++;
+            }
+
+            int min = heads[bucket];
+            for (int id = next[min]; id != -1; id = next[id]) {
+                if (priorities[id] < priorities[min]) {
+                    min = id;
+                }
+            }
+            last = priorities[min];
+
+            int id = heads[bucket];
+            heads[bucket] = -1;
+            while (id != -1) {
+                int following = next[id];
+                link(id);
+                id = following;
+            }
+        }
+
+        int id = heads[0];
+        unlink(id);
+        buckets[id] = -1;
+        size--;
+
+        return id;
+    }
+
+    @Override
+    public void update(int id, int priority) {
+        if (!contains(id)) {
+            return;
+        }
+
+        checkPriority(priority);
+
+        unlink(id);
+        priorities[id] = priority;
+        link(id);
+    }
+
+    @Override
+    public void remove(int id) {
+        if (contains(id)) {
+            unlink(id);
+            buckets[id] = -1;
+            size--;
+        }
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return id >= 0 && id < buckets.length && buckets[id] != -1;
+    }
+
+    @Override
+    public int getPriority(int id) {
+        return priorities[id];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            for (int id = heads[bucket]; id != -1; id = next[id]) {
+                buckets[id] = -1;
+            }
+            heads[bucket] = -1;
+        }
+
+        last = 0;
+        size = 0;
+    }
+
+    /**
+     * Checks that a priority is not lower than the last extracted one, an empty heap restarts from the priority.
+     * @param priority Priority to check
+     */
+    private void checkPriority(int priority) {
+        if (size == 0 && priority >= 0 && priority < last) {
+            last = priority;
+        }
+        if (priority < last) {
+            throw new IllegalArgumentException("Priority " + priority + " lower than " + last);
+        }
+    }
+
+    /**
+     * @param priority Priority of an element
+     * @return Bucket of the priority, based on the highest bit different from the last extracted priority
+     */
+    private int bucket(int priority) {
+        return priority == last ? 0 : 32 - Integer.numberOfLeadingZeros(priority ^ last);
+    }
+
+    /**
+     * @param id Id to insert at the head of its bucket
+     */
+    private void link(int id) {
+        int bucket = bucket(priorities[id]);
+        int head = heads[bucket];
+
+        next[id] = head;
+        previous[id] = -1;
+        if (head != -1) {
+            previous[head] = id;
+        }
+        heads[bucket] = id;
+        buckets[id] = bucket;
+    }
+
+    /**
+     * @param id Id to remove from its bucket
+     */
+    private void unlink(int id) {
+        if (previous[id] != -1) {
+            next[previous[id]] = next[id];
+        } else {
+            heads[buckets[id]] = next[id];
+        }
+        if (next[id] != -1) {
+            previous[next[id]] = previous[id];
+        }
+    }
+
+    /**
+     * Grows the id indexed arrays to contain an id.
+     * @param id Id to contain
+     */
+    private void ensureCapacity(int id) {
+        if (id < buckets.length) {
+            return;
+        }
+
+        int capacity = Math.max(id + 1, buckets.length * 2);
+        int oldCapacity = buckets.length;
+
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        buckets = Arrays.copyOf(buckets, capacity);
+        Arrays.fill(buckets, oldCapacity, capacity, -1);
+    }
+}
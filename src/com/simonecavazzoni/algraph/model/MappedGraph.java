@@ -0,0 +1,193 @@
+package com.simonecavazzoni.algraph.model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read only graph in compressed sparse row layout, served directly from memory mapped buffers.
+ * Nothing is copied on the heap: opening a graph only maps its file, pages are loaded when the arcs are read
+ * and can be shared by the processes mapping the same file. Node models are created only when requested.
+ * Int arrays are split in chunks of CHUNK_SIZE ints, as a single buffer cannot address more than 2 GB.
+ */
+public class MappedGraph implements CsrGraph {
+
+    /**
+     * Number of ints of every chunk but the last one
+     */
+    public static final int CHUNK_SIZE = 1 << 28;
+    private static final int CHUNK_SHIFT = 28;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final boolean directed;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int maxWeight;
+
+    private final IntBuffer[] offsets;
+    private final IntBuffer[] targets;
+    private final IntBuffer[] weights;
+    private final Labels labels;
+
+    private MappedGraph reversed;
+
+    /**
+     * @param directed True if the graph is directed
+     * @param maxWeight Maximum arc weight
+     * @param offsets Arcs of node i are from offsets[i] to offsets[i + 1] excluded, node count + 1 ints
+     * @param targets Target node id of every arc
+     * @param weights Weight of every arc
+     * @param reverseOffsets Offsets of the reversed graph, null if undirected
+     * @param reverseTargets Targets of the reversed graph, null if undirected
+     * @param reverseWeights Weights of the reversed graph, null if undirected
+     * @param labelOffsets Bytes of label i are from labelOffsets[i] to labelOffsets[i + 1] excluded
+     * @param labelBytes UTF-8 bytes of all the labels
+     */
+    public MappedGraph(boolean directed, int maxWeight, IntBuffer[] offsets, IntBuffer[] targets,
+                       IntBuffer[] weights, IntBuffer[] reverseOffsets, IntBuffer[] reverseTargets,
+                       IntBuffer[] reverseWeights, IntBuffer[] labelOffsets, ByteBuffer labelBytes) {
+        this(directed, maxWeight, offsets, targets, weights,
+                new Labels(length(labelOffsets) - 1, labelOffsets, labelBytes), null);
+
+        if (directed) {
+            if (reverseOffsets == null || reverseTargets == null || reverseWeights == null) {
+                throw new IllegalArgumentException();
+            }
+            reversed = new MappedGraph(true, maxWeight, reverseOffsets, reverseTargets, reverseWeights, labels,
+                    this);
+        } else {
+            reversed = this;
+        }
+    }
+
+    private MappedGraph(boolean directed, int maxWeight, IntBuffer[] offsets, IntBuffer[] targets,
+                        IntBuffer[] weights, Labels labels, MappedGraph reversed) {
+        this.directed = directed;
+        this.nodeCount = labels.count;
+        this.edgeCount = (int) length(targets);
+        this.maxWeight = maxWeight;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.labels = labels;
+        this.reversed = reversed;
+
+        if (length(offsets) != nodeCount + 1 || length(weights) != edgeCount) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int getEdgeStart(int node) {
+        return get(offsets, node);
+    }
+
+    @Override
+    public int getEdgeEnd(int node) {
+        return get(offsets, node + 1);
+    }
+
+    @Override
+    public int getTarget(int edge) {
+        return get(targets, edge);
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return get(weights, edge);
+    }
+
+    @Override
+    public int getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public String getLabel(int node) {
+        return labels.getLabel(node);
+    }
+
+    @Override
+    public Node getNode(int node) {
+        return labels.getNode(node);
+    }
+
+    /**
+     * The reversed arcs are mapped as well, so backward searches do not copy the graph either.
+     * @return Reversed graph, the graph itself if undirected
+     */
+    @Override
+    public CsrGraph reverse() {
+        return reversed;
+    }
+
+    private static int get(IntBuffer[] chunks, int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    private static long length(IntBuffer[] chunks) {
+        long length = 0;
+        for (IntBuffer chunk : chunks) {
+            length += chunk.limit();
+        }
+        return length;
+    }
+
+    /**
+     * Labels shared by a graph and its reverse, with the node models created on first use.
+     */
+    private static class Labels {
+        private final int count;
+        private final IntBuffer[] offsets;
+        private final ByteBuffer bytes;
+        private Node[] nodes;
+
+        private Labels(long count, IntBuffer[] offsets, ByteBuffer bytes) {
+            if (count < 0 || count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException();
+            }
+
+            this.count = (int) count;
+            this.offsets = offsets;
+            this.bytes = bytes;
+        }
+
+        private String getLabel(int node) {
+            int start = get(offsets, node);
+            byte[] label = new byte[get(offsets, node + 1) - start];
+
+            // Absolute reads on a duplicate, so threads never share a buffer position
+            ByteBuffer view = bytes.duplicate();
+            view.position(start);
+            view.get(label);
+            return new String(label, StandardCharsets.UTF_8);
+        }
+
+        private synchronized Node getNode(int node) {
+            if (nodes == null) {
+                nodes = new Node[count];
+            }
+
+            if (nodes[node] == null) {
+                nodes[node] = new Node(getLabel(node));
+                nodes[node].setId(node);
+            }
+            return nodes[node];
+        }
+    }
+}
@@ -11,8 +11,9 @@ public class Node {
     private static final String DEFAULT_LABEL = "";
 
     private String label;
+    private int id = -1;
 
-    private final NodeUI ui;
+    private NodeUI ui;
 
     /**
      * Void constructor
@@ -26,7 +27,6 @@ public class Node {
      */
     public Node(String label) {
         setLabel(label);
-        this.ui = new NodeUI(this);
     }
 
     /**
@@ -40,13 +40,51 @@ public class Node {
      * @param label label(name) passed as parameter
      */
     public void setLabel(String label) {
-        this.label = label.replace(" ", "_");
+        this.label = normalizeLabel(label);
     }
 
+    /**
+     * Converts a label to the form stored by the nodes, so that it can be used for lookups.
+     * @param label Label to convert
+     * @return Normalized label
+     */
+    public static String normalizeLabel(String label) {
+        return label.replace(" ", "_");
+    }
+
+    /**
+     * Dense id assigned by the graph containing the node.
+     * @return Id of the node, -1 if the node is not in a graph
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param id Id assigned by the graph
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * UI component of the node, created on first use so that the model can be used without the UI toolkit.
+     * @return Node UI
+     */
     public NodeUI getUi() {
+        if (ui == null) {
+            ui = new NodeUI(this);
+        }
         return ui;
     }
 
+    /**
+     * @return True if the UI component has already been created
+     */
+    public boolean hasUi() {
+        return ui != null;
+    }
+
     /**
      * @return return
      */
@@ -13,13 +13,11 @@ public class PriorityItem<T> {
     private PriorityItemUI<T> priorityItemUI;
 
     public PriorityItem(){
-        priorityItemUI = new PriorityItemUI<>();
     }
 
     public PriorityItem(T object,int priority){
         setItem(object);
         this.priority = priority;
-        priorityItemUI = new PriorityItemUI<>(this);
     }
 
     public PriorityItem(T object){
@@ -52,13 +50,19 @@ public class PriorityItem<T> {
      */
     public void setPriority(int priority) {
         this.priority = priority;
-        this.priorityItemUI.updatePriorityLabel();
+        if (priorityItemUI != null) {
+            this.priorityItemUI.updatePriorityLabel();
+        }
     }
 
     /**
+     * The UI is created on first use, items of headless queues never build it.
      * @return  PriorityItemUI This returns the object UI
      */
     public PriorityItemUI<T> getPriorityItemUI(){
+        if (priorityItemUI == null) {
+            priorityItemUI = new PriorityItemUI<>(item != null ? this : null);
+        }
         return priorityItemUI;
     }
 
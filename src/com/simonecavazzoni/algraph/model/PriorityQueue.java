@@ -155,12 +155,13 @@ public class PriorityQueue<T> {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("S = { ");
         int numItems = 0;
-        for(PriorityItem item:list){
+        ArrayList<PriorityItem<T>> items = getAll();
+        for(PriorityItem item:items){
             if(item.getItem() instanceof Node){
                 numItems++;
                 Node node = (Node) item.getItem();
                 stringBuilder.append(node.getLabel());
-                if(numItems < list.size()){
+                if(numItems < items.size()){
                     stringBuilder.append(" ,");
                 }
             }
@@ -26,6 +26,9 @@ public final class Strings {
             save_file = "Salva Grafo su File ",
             step = "Passo",
             execute_step = "Esegui un Passo",
+            step_back = "Indietro",
+            execute_step_back = "Torna al Passo Precedente",
+            execute_go_to_step = "Scorri i Passi Eseguiti",
             execute_all = "Esegui",
             execute_reset = "Reset",
             execution = "Esecuzione",
@@ -45,6 +48,8 @@ public final class Strings {
             pseudo_code_title = "Algoritmo di Dijkstra",
             program_files = "ALGR file",
             program_extension = "algr",
+            binary_program_files = "ALGR file binario",
+            binary_program_extension = "algrb",
             all_files = "Tutti i file",
             untitled = "Senza titolo",
             num_nodes = "Numero nodi:",
@@ -65,7 +70,7 @@ public final class Strings {
             algorithm_info_hypothesis_1 = "Ogni nodo viene estratto una e una sola volta",
             algorithm_info_hypothesis_2 = "Al momento dell'estrazione la sua distanza è minima",
             algorithm_info_data_structure_title = "Struttura di dati",
-            algorithm_info_fata_structure_description = "Coda con priorità, realizzata tramite vettore/lista non ordinati",
+            algorithm_info_fata_structure_description = "Coda con priorità, realizzata tramite heap binario indicizzato nell'esecuzione a passi e tramite coda a bucket (Dial) o radix heap, in base al peso massimo degli archi, nell'esecuzione immediata",
             algorithm_info_hypothesis_title = "Ipotesi",
             slow = "Lento",
             instant = "Veloce",
@@ -0,0 +1,156 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.IntHeap;
+import com.simonecavazzoni.algraph.model.IntPriorityQueue;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.Arrays;
+
+/**
+ * Point to point shortest path queries with A*.
+ * Nodes are extracted by distance from the source plus the heuristic estimate of the distance to the target,
+ * so an informed heuristic settles fewer nodes than Dijkstra. With Heuristic.ZERO the search is plain Dijkstra.
+ * Working arrays are reused between queries, so an instance must not be shared between threads.
+ */
+public class AStarSearch {
+
+    private final CsrGraph graph;
+    private final Heuristic heuristic;
+    private final IntPriorityQueue queue;
+
+    private final int[] distances;
+    private final int[] parents;
+    private final int[] stamps;
+    private int stamp;
+
+    /**
+     * @param graph Graph to analyze
+     * @param heuristic Lower bound of the distances, prepared on the graph
+     */
+    public AStarSearch(CsrGraph graph, Heuristic heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+
+        heuristic.prepare(graph);
+
+        // Estimates may lower the priorities between extractions, so a monotone queue cannot be used
+        queue = new IntHeap(graph.getNodeCount());
+        distances = new int[graph.getNodeCount()];
+        parents = new int[graph.getNodeCount()];
+        stamps = new int[graph.getNodeCount()];
+    }
+
+    /**
+     * @return Heuristic directing the search
+     */
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Computes the shortest path between two nodes of the analyzed graph.
+     * @param source Source node
+     * @param target Target node
+     * @return Shortest path, not existing if a node is missing or not reachable
+     */
+    public ShortestPath query(Node source, Node target) {
+        return query(source == null ? -1 : source.getId(), target == null ? -1 : target.getId());
+    }
+
+    /**
+     * Computes the shortest path between two node ids.
+     * @param source Source node id
+     * @param target Target node id
+     * @return Shortest path, not existing if an id is missing or not reachable
+     */
+    public ShortestPath query(int source, int target) {
+        int n = graph.getNodeCount();
+        if (source < 0 || source >= n || target < 0 || target >= n) {
+            return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], 0);
+        }
+
+        reset();
+        set(source, 0, -1);
+        queue.push(source, priority(0, source, target));
+
+        int settled = 0;
+        while (!queue.isEmpty()) {
+            int u = queue.pop();
+            settled++;
+
+            if (u == target) {
+                return new ShortestPath(graph, getDistance(target), buildPath(target), settled);
+            }
+
+            int du = getDistance(u);
+            for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                int v = graph.getTarget(e);
+                int distance = du + graph.getWeight(e);
+                if (distance < getDistance(v)) {
+                    // A settled node is pushed again if reached with a shorter distance, as needed when the
+                    // heuristic is admissible but not consistent
+                    set(v, distance, u);
+                    queue.push(v, priority(distance, v, target));
+                }
+            }
+        }
+
+        return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], settled);
+    }
+
+    /**
+     * @param distance Distance of the node from the source
+     * @param node Node id
+     * @param target Target node id
+     * @return Priority of the node in the queue
+     */
+    private int priority(int distance, int node, int target) {
+        long priority = (long) distance + heuristic.estimate(node, target);
+        return (int) Math.min(priority, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @param target Target node id
+     * @return Node ids from source to target
+     */
+    private int[] buildPath(int target) {
+        int length = 0;
+        for (int v = target; v != -1; v = getParent(v)) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        for (int v = target; v != -1; v = getParent(v)) {
+            path[--length] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Starts a new query, entries stamped with an older query are treated as unreached.
+     */
+    private void reset() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 0;
+        }
+        stamp++;
+
+        queue.clear();
+    }
+
+    private int getDistance(int v) {
+        return stamps[v] == stamp ? distances[v] : ShortestPathTree.INFINITY;
+    }
+
+    private int getParent(int v) {
+        return stamps[v] == stamp ? parents[v] : -1;
+    }
+
+    private void set(int v, int distance, int parent) {
+        stamps[v] = stamp;
+        distances[v] = distance;
+        parents[v] = parent;
+    }
+}
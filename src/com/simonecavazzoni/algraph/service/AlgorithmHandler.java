@@ -3,21 +3,28 @@ package com.simonecavazzoni.algraph.service;
 import com.simonecavazzoni.algraph.controller.CodeController;
 import com.simonecavazzoni.algraph.controller.GraphController;
 import com.simonecavazzoni.algraph.controller.PriorityQueueController;
+import com.simonecavazzoni.algraph.model.CsrGraph;
 import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IndexedPriorityQueue;
 import com.simonecavazzoni.algraph.model.Node;
-import com.simonecavazzoni.algraph.model.PriorityItem;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Dijkstra algorithm operations
+ * Dijkstra algorithm operations.
+ * New steps are executed by a DijkstraStepper, on the UI thread or on a StepWorker, and recorded in a StepTrace.
+ * The state shown is changed only by applying the recorded steps, so the execution can move backward
+ * and jump to any step without executing the algorithm again.
  */
 public class AlgorithmHandler {
 
-    private static final int PROGRAM_COUNTER_END = 10;
+    private static final int PROGRAM_COUNTER_END = DijkstraStepper.PROGRAM_COUNTER_END;
 
     private GraphController graphController;
     private PriorityQueueController priorityQueueController;
@@ -29,12 +36,23 @@ public class AlgorithmHandler {
     private Map<Node, Node> resultParent;
 
     private Node u;
-    private Iterator<Edge> adjacencies;
+    private Edge[] adjacencies;
+    private int adjacencyIndex;
     private Node v;
     private int w;
 
     private Edge e;
 
+    private IndexedPriorityQueue<Node> queue;
+    private final List<Node> extracted = new ArrayList<>();
+    private StepTrace trace;
+    private int position;
+    private DijkstraStepper stepper;
+    private StepWorker worker;
+
+    private DynamicShortestPathTree dynamicTree;
+    private CsrGraph resultSnapshot;
+    private final ShortestPathCache cache = new ShortestPathCache();
 
     /**
      * Initializes controller with references to other controllers.
@@ -65,112 +83,591 @@ public class AlgorithmHandler {
      * Restarts algorithm execution and empties data structures
      */
     public void restartAlgorithm() {
+        resetState();
+
+        priorityQueueController.clear();
+        dynamicTree = null;
+        resultSnapshot = null;
+        clearTrace();
+    }
+
+    /**
+     * Sets the state before the first step, trace and UI are kept.
+     */
+    private void resetState() {
         programCounter = 0;
         u = null;
         v = null;
+        e = null;
         resultDistance = graphController.getGraph().getNodes()
                 .stream().collect(Collectors.toMap(n -> n, n -> n.equals(this.startNode) ? 0 : Integer.MAX_VALUE));
         resultParent = new HashMap<>();
 
-        priorityQueueController.clear();
         adjacencies = null;
+        adjacencyIndex = 0;
+        extracted.clear();
+    }
+
+    /**
+     * Discards the recorded steps, the current state becomes the first one of a new trace.
+     */
+    private void clearTrace() {
+        stopWorker();
+
+        trace = new StepTrace(graphController.getGraph().getNodeCount());
+        position = 0;
+        stepper = null;
+    }
+
+    /**
+     * Creates the priority queue used by the algorithm and shows it empty.
+     * A heap is used instead of the monotone queues of DijkstraEngine, because moving backward
+     * inserts again extracted nodes with priorities lower than the last extracted one.
+     */
+    private void initQueue() {
+        queue = new IndexedPriorityQueue<>();
+        priorityQueueController.setQueue(queue);
     }
 
     /**
      * Executes one step of the algorithm based on the program counter.
+     * If the step was already executed before moving backward, it is applied again from the trace.
      */
     public void executeStep() {
         if (startNode == null || isFinished()) {
             return;
         }
 
-        codeController.selectLine(programCounter == PROGRAM_COUNTER_END ? -1 : programCounter);
+        // Stopping the worker moves its steps to the trace
+        if (position == trace.size()) {
+            stopWorker();
+        }
+        if (position == trace.size()) {
+            record();
+        }
+
+        int line = trace.getProgramCounter(position);
+        codeController.selectLine(line == PROGRAM_COUNTER_END ? -1 : line);
+
+        apply();
+        showQueue();
+    }
+
+    /**
+     * Executes up to a number of steps, showing only the state after the last one.
+     * Steps executed by the worker are moved to the trace first, if the worker is behind
+     * fewer steps are executed and the others are left for the next call.
+     * @param steps Maximum number of steps to execute
+     * @return Number of executed steps
+     */
+    public int advance(int steps) {
+        if (startNode == null || steps <= 0) {
+            return 0;
+        }
+
+        if (worker != null) {
+            worker.drain(Math.max(steps - (trace.size() - position), 0));
+        } else {
+            while (trace.size() - position < steps && !stepper().isFinished()) {
+                record();
+            }
+        }
+
+        int count = Math.min(steps, trace.size() - position);
+        if (count == 0) {
+            return 0;
+        }
 
-        switch (programCounter) {
-            // S.add(r)
-            case 0:
-                priorityQueueController.push(startNode, 0);
+        for (int i = 1; i < count; i++) {
+            apply();
+        }
+
+        // The code line is selected before the last step, as executeStep() does
+        int line = trace.getProgramCounter(position);
+        codeController.selectLine(line == PROGRAM_COUNTER_END ? -1 : line);
+        apply();
+        showQueue();
+
+        return count;
+    }
+
+    /**
+     * Starts executing the remaining steps on a background thread, they are shown by advance().
+     */
+    public void startWorker() {
+        if (startNode == null || worker != null || stepper().isFinished()) {
+            return;
+        }
+
+        worker = new StepWorker(stepper(), trace);
+        worker.start();
+    }
+
+    /**
+     * Stops the background thread, the steps it executed stay in the trace.
+     */
+    public void stopWorker() {
+        if (worker == null) {
+            return;
+        }
+
+        worker.stop();
+        worker = null;
+    }
+
+    /**
+     * @return True if steps are still to be executed or shown
+     */
+    public boolean hasPendingSteps() {
+        return position < trace.size() || (worker != null && worker.hasPendingSteps());
+    }
+
+    /**
+     * Gets the stepper executing new steps, created on the current graph when the first step is executed.
+     * @return Stepper
+     */
+    private DijkstraStepper stepper() {
+        if (stepper == null) {
+            stepper = new DijkstraStepper(graphController.getGraph(), startNode);
+        }
+        return stepper;
+    }
+
+    /**
+     * Executes a new step with the stepper and appends it to the trace.
+     */
+    private void record() {
+        DijkstraStepper stepper = stepper();
+
+        if (trace.needsKeyframe(trace.size())) {
+            trace.addKeyframe(stepper.createKeyframe(trace.size()));
+        }
+
+        stepper.step();
+        trace.add(stepper.getLine(), stepper.getProgramCounter(), stepper.getOperation(), stepper.getNode(),
+                stepper.getOldValue(), stepper.getNewValue());
+    }
+
+    /**
+     * Applies the next recorded step, the queue is changed without showing it.
+     */
+    private void apply() {
+        int node = trace.getNode(position);
+        int value = trace.getNewValue(position);
+
+        switch (trace.getOperation(position)) {
+            case StepTrace.INIT:
+                initQueue();
+                queue.push(startNode, 0);
                 break;
-            // while not S.isEmpty() do
-            case 1:
-                if (priorityQueueController.getQueue().isEmpty()) {
-                    programCounter = PROGRAM_COUNTER_END;
-                    return;
-                }
+            case StepTrace.POP:
+                queue.remove(getNode(node));
+                pop(getNode(node));
+                break;
+            case StepTrace.EDGE:
+                setAdjacencyIndex(value);
+                break;
+            case StepTrace.PUSH:
+                queue.push(getNode(node), value);
+                break;
+            case StepTrace.UPDATE:
+                queue.update(getNode(node), value);
+                break;
+            case StepTrace.DISTANCE:
+                resultDistance.put(getNode(node), value);
+                break;
+            case StepTrace.PARENT:
+                resultParent.put(getNode(node), getNode(value));
                 break;
-            // u <- S.pop()
-            case 2:
-                PriorityItem<Node> priorityItem = priorityQueueController.pop();
-                u = priorityItem.getItem();
+        }
+
+        programCounter = trace.getNextProgramCounter(position);
+        position++;
+
+        // The graph cannot change while the algorithm is running, so the snapshot matches the result
+        if (isFinished()) {
+            resultSnapshot = graphController.getGraph().freeze();
+        }
+    }
+
+    /**
+     * Shows the queue with the extracted node, emptied once the algorithm ends.
+     */
+    private void showQueue() {
+        Node node = isFinished() ? null : u;
+        priorityQueueController.setSelected(node, node == null ? 0 : resultDistance.get(node));
+    }
+
+    /**
+     * Moves back of one step, undoing the changes of the last executed step.
+     */
+    public void stepBack() {
+        if (position == 0) {
+            return;
+        }
 
-                graphController.highlight(u, resultParent.get(u));
-                u.getUi().getDistanceLabel().setText(String.valueOf(resultDistance.get(u)));
+        position--;
+
+        int node = trace.getNode(position);
+        int value = trace.getOldValue(position);
+
+        switch (trace.getOperation(position)) {
+            case StepTrace.INIT:
+                priorityQueueController.clear();
                 break;
-            // foreach v belonging to G.adj(u) do
-            case 3:
-                if (adjacencies == null) {
-                    adjacencies = graphController.getGraph().getAdjacencies().get(u).iterator();
-                }
-                if (!adjacencies.hasNext()) {
-                    programCounter = 1;
-                    adjacencies = null;
-                    return;
+            case StepTrace.POP:
+                Node popped = getNode(node);
+                Node previous = getNode(value);
+
+                extracted.remove(extracted.size() - 1);
+                graphController.resetHighlight(popped, resultParent.get(popped));
+                popped.getUi().getDistanceLabel().setText("");
+
+                queue.push(popped, trace.getNewValue(position));
+
+                setExtractedNode(previous);
+                if (previous != null) {
+                    setAdjacencyIndex(adjacencies.length);
                 }
-                e = adjacencies.next();
-                v = e.getN2();
-                w = e.getWeight();
                 break;
-            // if d[u] + w(u, v) < d[v] then
-            case 4:
-               if (resultDistance.get(u) + w >= resultDistance.get(v)) {
-                    programCounter = 3;
-                    return;
-               }
-               break;
-           // if not b[v] then
-            case 5:
-                if (priorityQueueController.getQueue().existItem(v)) {
-                    programCounter = 7;
-                    return;
-                }
+            case StepTrace.EDGE:
+                setAdjacencyIndex(value);
                 break;
-            // S.insert(v, d[u] + w(u, v))
-            case 6:
-                priorityQueueController.push(v, resultDistance.get(u) + w);
-                programCounter = 8;
-                return;
-            // else s.update(v, d[u] + w(u, v))
-            case 7:
-                priorityQueueController.update(v, resultDistance.get(u) + w);
+            case StepTrace.PUSH:
+                queue.remove(getNode(node));
                 break;
-            // d[v] <- d[u] + w(u, v)
-            case 8:
-                resultDistance.put(v, resultDistance.get(u) + w);
+            case StepTrace.UPDATE:
+                queue.update(getNode(node), value);
                 break;
-            // T[v] <- u
-            case 9:
-                resultParent.put(v, u);
-                programCounter = 3;
-                return;
-            case 10:
-                priorityQueueController.clear();
+            case StepTrace.DISTANCE:
+                resultDistance.put(getNode(node), value);
+                break;
+            case StepTrace.PARENT:
+                if (value == -1) {
+                    resultParent.remove(getNode(node));
+                } else {
+                    resultParent.put(getNode(node), getNode(value));
+                }
                 break;
         }
 
-        programCounter++;
+        programCounter = trace.getProgramCounter(position);
+        showQueue();
+        selectLastLine();
+    }
+
+    /**
+     * Moves to a step, executing the algorithm if the step was never reached.
+     * Far steps are reached from the nearest keyframe of the trace, showing the state only once.
+     * Steps executed by the worker and not yet drained are not reachable.
+     * @param step Number of executed steps to move to
+     */
+    public void goToStep(int step) {
+        if (startNode == null || step < 0) {
+            return;
+        }
+
+        int target = Math.min(step, trace.size());
+        StepTrace.Keyframe keyframe = trace.getKeyframe(target);
+        int keyframeStep = keyframe == null ? 0 : keyframe.getStep();
+        if (target - keyframeStep < Math.abs(target - position)) {
+            restore(keyframe);
+        }
+
+        while (position > step) {
+            stepBack();
+        }
+        if (position < step) {
+            advance(step - position);
+        }
+    }
+
+    /**
+     * Sets the state of a keyframe and shows it from scratch.
+     * @param keyframe Keyframe to restore, null for the state before the first step
+     */
+    private void restore(StepTrace.Keyframe keyframe) {
+        resetState();
+
+        codeController.clearSelection();
+        graphController.resetGraphUI();
+        priorityQueueController.clear();
+
+        if (keyframe == null) {
+            position = 0;
+            selectLastLine();
+            return;
+        }
+
+        int[] distances = keyframe.getDistances();
+        int[] parents = keyframe.getParents();
+        for (int id = 0; id < distances.length; id++) {
+            Node node = getNode(id);
+            resultDistance.put(node, distances[id]);
+            if (parents[id] != -1) {
+                resultParent.put(node, getNode(parents[id]));
+            }
+        }
+
+        // Extracted nodes are inserted and removed again, to keep the insertion order of the queue
+        initQueue();
+        int[] queueNodes = keyframe.getQueueNodes();
+        int[] queuePriorities = keyframe.getQueuePriorities();
+        for (int i = 0; i < queueNodes.length; i++) {
+            queue.push(getNode(queueNodes[i]), Math.max(queuePriorities[i], 0));
+        }
+        for (int i = 0; i < queueNodes.length; i++) {
+            if (queuePriorities[i] == -1) {
+                queue.remove(getNode(queueNodes[i]));
+            }
+        }
+
+        for (int id : keyframe.getExtracted()) {
+            Node node = getNode(id);
+            extracted.add(node);
+            graphController.highlight(node, resultParent.get(node));
+            node.getUi().getDistanceLabel().setText(String.valueOf(resultDistance.get(node)));
+        }
+
+        Node node = getNode(keyframe.getU());
+        setExtractedNode(node);
+        if (node != null) {
+            setAdjacencyIndex(keyframe.getEdgeIndex());
+        }
+
+        programCounter = keyframe.getProgramCounter();
+        position = keyframe.getStep();
+        showQueue();
+        selectLastLine();
     }
 
     /**
-     * Executes all remaining steps of the algorithm
+     * Sets a node as extracted from the queue and highlights it with its distance.
+     * @param node Extracted node
+     */
+    private void pop(Node node) {
+        setExtractedNode(node);
+        extracted.add(node);
+
+        graphController.highlight(u, resultParent.get(u));
+        u.getUi().getDistanceLabel().setText(String.valueOf(resultDistance.get(u)));
+    }
+
+    /**
+     * @param node Extracted node, null if none
+     */
+    private void setExtractedNode(Node node) {
+        u = node;
+        adjacencies = node == null ? null : stepper().getAdjacencies(node.getId());
+        setAdjacencyIndex(0);
+    }
+
+    /**
+     * Sets the number of analyzed edges of the extracted node, the last one is the current edge.
+     * @param index Number of analyzed edges
+     */
+    private void setAdjacencyIndex(int index) {
+        adjacencyIndex = index;
+        if (index > 0) {
+            e = adjacencies[index - 1];
+            v = e.getN2();
+            w = e.getWeight();
+        } else {
+            e = null;
+            v = null;
+        }
+    }
+
+    /**
+     * Selects the code line of the last executed step.
+     */
+    private void selectLastLine() {
+        int line = position == 0 ? -1 : trace.getProgramCounter(position - 1);
+        codeController.selectLine(line == PROGRAM_COUNTER_END ? -1 : line);
+    }
+
+    /**
+     * @param id Node id
+     * @return Node of the graph, null if the id is -1
+     */
+    private Node getNode(int id) {
+        return id == -1 ? null : graphController.getGraph().getNode(id);
+    }
+
+    /**
+     * Executes all remaining steps of the algorithm.
+     * The result is computed by the headless engine and shown at once, without replaying every step on the UI.
+     * Results are cached, so running again from the same node on an unchanged graph needs no computation.
      */
     public void executeAll() {
         if (startNode == null || isFinished()) {
             return;
         }
 
-        while (!isFinished()) {
-            executeStep();
+        Graph graph = graphController.getGraph();
+        ShortestPathTree tree = cache.get(graph, startNode, DijkstraEngine.NAME,
+                () -> DijkstraEngine.compute(graph, startNode));
+        resultDistance = new HashMap<>(tree.getDistances());
+        resultParent = new HashMap<>(tree.getParents());
+        resultSnapshot = tree.getGraph();
+
+        clearTrace();
+        showResult();
+    }
+
+    /**
+     * Repairs the result of a finished execution after the edges between two nodes have been added,
+     * removed or have changed weight. Only the nodes whose distance or parent changed are updated.
+     * Before the first step the recorded steps are discarded instead.
+     * @param n1 First node
+     * @param n2 Second node
+     */
+    public void updateEdge(Node n1, Node n2) {
+        if (!isFinished()) {
+            discardTrace();
+            return;
         }
+
+        if (dynamicTree == null) {
+            if (resultSnapshot == null) {
+                updateGraph();
+                return;
+            }
+            dynamicTree = new DynamicShortestPathTree(graphController.getGraph(), getResultTree());
+        }
+
+        dynamicTree.updateEdge(n1, n2);
+        List<Node> changed = dynamicTree.getChangedNodes();
+
+        // Old tree edges are reset before the new ones are highlighted, as a changed node can be the old parent
+        // of another changed node on the same undirected edge
+        for (Node node : changed) {
+            graphController.resetHighlight(node, resultParent.get(node));
+        }
+        setResult(changed);
+
+        clearTrace();
+        for (Node node : changed) {
+            showResult(node);
+        }
+    }
+
+    /**
+     * @return Result of the finished execution as a tree of the snapshot taken when it finished
+     */
+    private ShortestPathTree getResultTree() {
+        int nodeCount = resultSnapshot.getNodeCount();
+        int[] distances = new int[nodeCount];
+        int[] parents = new int[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            Node node = resultSnapshot.getNode(id);
+            Integer distance = resultDistance.get(node);
+            Node parent = resultParent.get(node);
+
+            distances[id] = distance == null ? ShortestPathTree.INFINITY : distance;
+            parents[id] = parent == null ? -1 : parent.getId();
+        }
+
+        return new ShortestPathTree(resultSnapshot, startNode.getId(), distances, parents);
+    }
+
+    /**
+     * Computes again the result of a finished execution after nodes have been added or removed.
+     * Before the first step the recorded steps are discarded instead.
+     */
+    public void updateGraph() {
+        if (!isFinished()) {
+            discardTrace();
+            return;
+        }
+
+        dynamicTree = new DynamicShortestPathTree(graphController.getGraph(), startNode);
+        resultDistance = new HashMap<>();
+        resultParent = new HashMap<>();
+        setResult(graphController.getGraph().getNodes());
+
+        clearTrace();
+        showResult();
+    }
+
+    /**
+     * Discards the steps recorded on the graph before it changed, it can change only before the first step.
+     * The starting node is unset if it has been removed.
+     */
+    private void discardTrace() {
+        if (startNode == null) {
+            return;
+        }
+
+        if (graphController.getGraph().getNode(startNode) != startNode) {
+            startNode = null;
+        }
+        resetState();
+        clearTrace();
+    }
+
+    /**
+     * Copies distances and parents of some nodes from the dynamic tree to the result maps.
+     * @param nodes Nodes to copy
+     */
+    private void setResult(Collection<Node> nodes) {
+        for (Node node : nodes) {
+            resultDistance.put(node, dynamicTree.getDistance(node));
+
+            Node parent = dynamicTree.getParent(node);
+            if (parent == null) {
+                resultParent.remove(node);
+            } else {
+                resultParent.put(node, parent);
+            }
+        }
+    }
+
+    /**
+     * Shows the final state of the algorithm: parent tree highlighted, distances set and queue emptied.
+     */
+    private void showResult() {
+        u = null;
+        v = null;
+        e = null;
+        adjacencies = null;
+        adjacencyIndex = 0;
+        extracted.clear();
+
+        codeController.clearSelection();
+        graphController.resetGraphUI();
+        for (Node node : resultDistance.keySet()) {
+            showResult(node);
+        }
+
+        priorityQueueController.clear();
+
+        programCounter = PROGRAM_COUNTER_END;
+        codeController.selectLine(-1);
+        programCounter++;
+    }
+
+    /**
+     * Shows the result of a node, whose highlight has already been reset: tree edge highlighted and distance set.
+     * @param node Node to show
+     */
+    private void showResult(Node node) {
+        int distance = resultDistance.get(node);
+        if (distance == ShortestPathTree.INFINITY) {
+            node.getUi().getDistanceLabel().setText("");
+            return;
+        }
+
+        graphController.highlight(node, resultParent.get(node));
+        node.getUi().getDistanceLabel().setText(String.valueOf(distance));
+    }
+
+    /**
+     * Gets the cache of the results computed by executeAll.
+     * @return Result cache
+     */
+    public ShortestPathCache getCache() {
+        return cache;
     }
 
     /**
@@ -189,6 +686,30 @@ public class AlgorithmHandler {
         return programCounter > PROGRAM_COUNTER_END;
     }
 
+    /**
+     * True if there are executed steps to move back to.
+     * @return Execution can move backward
+     */
+    public boolean canStepBack() {
+        return position > 0;
+    }
+
+    /**
+     * Gets the number of executed steps.
+     * @return Current step
+     */
+    public int getStep() {
+        return position;
+    }
+
+    /**
+     * Gets the number of recorded steps, the last step reachable without executing the algorithm.
+     * @return Recorded steps
+     */
+    public int getRecordedSteps() {
+        return trace.size();
+    }
+
     /**
      * True if starting node is set.
      * @return Starting node exists
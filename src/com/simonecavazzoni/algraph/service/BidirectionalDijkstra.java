@@ -0,0 +1,187 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.IntPriorityQueue;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.Arrays;
+
+/**
+ * Point to point shortest path queries with bidirectional Dijkstra.
+ * A forward search from the source and a backward search from the target on the reversed graph
+ * run alternately, and the query stops as soon as the two frontiers prove that no shorter path exists.
+ * Working arrays are reused between queries, so an instance must not be shared between threads.
+ */
+public class BidirectionalDijkstra {
+
+    private final CsrGraph graph;
+    private final SearchSpace forward;
+    private final SearchSpace backward;
+
+    /**
+     * @param graph Graph to analyze, the reversed graph is built on first use
+     */
+    public BidirectionalDijkstra(CsrGraph graph) {
+        this.graph = graph;
+
+        forward = new SearchSpace(graph);
+        backward = new SearchSpace(graph.reverse());
+    }
+
+    /**
+     * Computes the shortest path between two nodes of the analyzed graph.
+     * @param source Source node
+     * @param target Target node
+     * @return Shortest path, not existing if a node is missing or not reachable
+     */
+    public ShortestPath query(Node source, Node target) {
+        return query(source == null ? -1 : source.getId(), target == null ? -1 : target.getId());
+    }
+
+    /**
+     * Computes the shortest path between two node ids.
+     * @param source Source node id
+     * @param target Target node id
+     * @return Shortest path, not existing if an id is missing or not reachable
+     */
+    public ShortestPath query(int source, int target) {
+        int n = graph.getNodeCount();
+        if (source < 0 || source >= n || target < 0 || target >= n) {
+            return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], 0);
+        }
+
+        forward.reset(source);
+        backward.reset(target);
+
+        int best = source == target ? 0 : ShortestPathTree.INFINITY;
+        int meeting = source == target ? source : -1;
+        int lastForward = 0;
+        int lastBackward = 0;
+        int settled = 0;
+
+        while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+            boolean isForward = forward.queue.size() <= backward.queue.size();
+            SearchSpace search = isForward ? forward : backward;
+            SearchSpace other = isForward ? backward : forward;
+
+            int u = search.queue.pop();
+            int du = search.getDistance(u);
+            if (isForward) {
+                lastForward = du;
+            } else {
+                lastBackward = du;
+            }
+
+            if ((long) lastForward + lastBackward >= best) {
+                break;
+            }
+            settled++;
+
+            for (int e = search.graph.getEdgeStart(u), end = search.graph.getEdgeEnd(u); e < end; e++) {
+                int v = search.graph.getTarget(e);
+                int distance = du + search.graph.getWeight(e);
+                if (distance < search.getDistance(v)) {
+                    search.set(v, distance, u);
+                    search.queue.push(v, distance);
+                }
+
+                int otherDistance = other.getDistance(v);
+                if (otherDistance != ShortestPathTree.INFINITY
+                        && (long) search.getDistance(v) + otherDistance < best) {
+                    best = search.getDistance(v) + otherDistance;
+                    meeting = v;
+                }
+            }
+        }
+
+        if (meeting == -1) {
+            return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], settled);
+        }
+
+        return new ShortestPath(graph, best, buildPath(meeting), settled);
+    }
+
+    /**
+     * Joins the forward path to the meeting node and the backward path from it.
+     * @param meeting Node where the two searches met
+     * @return Node ids from source to target
+     */
+    private int[] buildPath(int meeting) {
+        int length = 0;
+        for (int v = meeting; v != -1; v = forward.getParent(v)) {
+            length++;
+        }
+        for (int v = backward.getParent(meeting); v != -1; v = backward.getParent(v)) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int i = 0;
+        for (int v = meeting; v != -1; v = forward.getParent(v)) {
+            path[i++] = v;
+        }
+        for (int l = 0, r = i - 1; l < r; l++, r--) {
+            int tmp = path[l];
+            path[l] = path[r];
+            path[r] = tmp;
+        }
+        for (int v = backward.getParent(meeting); v != -1; v = backward.getParent(v)) {
+            path[i++] = v;
+        }
+
+        return path;
+    }
+
+    /**
+     * Distances, parents and queue of one search direction.
+     * Entries are valid only if stamped with the current query, so nothing is cleared between queries.
+     */
+    static class SearchSpace {
+        final CsrGraph graph;
+        final IntPriorityQueue queue;
+
+        private final int[] distances;
+        private final int[] parents;
+        private final int[] stamps;
+        private int stamp;
+
+        SearchSpace(CsrGraph graph) {
+            this.graph = graph;
+
+            queue = DijkstraEngine.createQueue(graph);
+            distances = new int[graph.getNodeCount()];
+            parents = new int[graph.getNodeCount()];
+            stamps = new int[graph.getNodeCount()];
+        }
+
+        /**
+         * Starts a new search from a node.
+         * @param source Starting node id
+         */
+        void reset(int source) {
+            if (stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 0;
+            }
+            stamp++;
+
+            queue.clear();
+            set(source, 0, -1);
+            queue.push(source, 0);
+        }
+
+        int getDistance(int v) {
+            return stamps[v] == stamp ? distances[v] : ShortestPathTree.INFINITY;
+        }
+
+        int getParent(int v) {
+            return stamps[v] == stamp ? parents[v] : -1;
+        }
+
+        void set(int v, int distance, int parent) {
+            stamps[v] = stamp;
+            distances[v] = distance;
+            parents[v] = parent;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader of the binary graph format, smaller and faster to read than the text one.
+ * The file starts with a header: magic number, version, flags (bit 0 set if directed), node count and
+ * arc count, the last two as big endian ints. Then come the labels of the nodes in id order, as a varint
+ * length followed by the UTF-8 bytes, and an adjacency block for every node in id order: the varint number of
+ * arcs, then every arc as the varint difference from the previous target (arcs are sorted by target) and the
+ * zigzag varint weight. An undirected edge is stored as two arcs, as in the adjacencies of the graph.
+ */
+class BinaryGraphReader {
+
+    /**
+     * First bytes of a binary file, not valid text so the two formats cannot be confused
+     */
+    static final int MAGIC = 0x89414C47;
+    static final byte VERSION = 1;
+    static final byte DIRECTED = 1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final long total;
+    private final FileHandler.ProgressListener listener;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position;
+    private int limit;
+    private long read;
+
+    /**
+     * @param channel Channel to read from the first byte, not closed by the reader
+     * @param total Number of bytes of the channel, used for progress
+     * @param listener Listener notified every time the buffer is filled, null if none
+     */
+    BinaryGraphReader(ReadableByteChannel channel, long total, FileHandler.ProgressListener listener) {
+        this.channel = channel;
+        this.total = total;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Graph read from the channel
+     * @throws IOException If the channel cannot be read or its content is not valid
+     */
+    Graph read() throws IOException {
+        if (readInt() != MAGIC) {
+            throw new IOException("Not a binary graph file");
+        }
+        if ((readByte() & 0xFF) != VERSION) {
+            throw new IOException("Unsupported version");
+        }
+        boolean directed = (readByte() & DIRECTED) != 0;
+        int nodeCount = readInt();
+        int arcCount = readInt();
+        if (nodeCount < 0 || arcCount < 0) {
+            throw new IOException("Invalid header");
+        }
+
+        Graph graph = new Graph(directed);
+
+        for (int id = 0; id < nodeCount; id++) {
+            int length = readVarint();
+            if (length < 0 || length > total - (read - (limit - position))) {
+                throw new IOException("Invalid label");
+            }
+
+            if (graph.addNode(readString(length)) == null) {
+                throw new IOException("Duplicate label");
+            }
+        }
+
+        // Every arc takes at least two bytes, so a corrupted count cannot allocate more than the file size
+        EdgeList edges = new EdgeList((int) Math.min(arcCount, total / 2));
+        for (int id = 0; id < nodeCount; id++) {
+            int degree = readVarint();
+
+            int target = 0;
+            for (int i = 0; i < degree; i++) {
+                target += readVarint();
+                int weight = readVarint();
+                if (target < 0 || target >= nodeCount) {
+                    throw new IOException("Invalid arc");
+                }
+
+                edges.add(id, target, weight >>> 1 ^ -(weight & 1));
+            }
+        }
+
+        if (edges.size() != arcCount) {
+            throw new IOException("Invalid arc count");
+        }
+        edges.addTo(graph);
+        return graph;
+    }
+
+    private byte readByte() throws IOException {
+        require(1);
+        return buffer[position++];
+    }
+
+    private int readInt() throws IOException {
+        require(4);
+        int value = (buffer[position] & 0xFF) << 24 | (buffer[position + 1] & 0xFF) << 16
+                | (buffer[position + 2] & 0xFF) << 8 | buffer[position + 3] & 0xFF;
+        position += 4;
+        return value;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position == limit) {
+                require(1);
+            }
+
+            byte b = buffer[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Invalid varint");
+    }
+
+    /**
+     * Reads a UTF-8 string, also if it is longer than the buffer.
+     * @param length Number of bytes of the string
+     */
+    private String readString(int length) throws IOException {
+        if (length <= buffer.length) {
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            require(1);
+            int count = Math.min(limit - position, length - offset);
+            System.arraycopy(buffer, position, bytes, offset, count);
+            position += count;
+            offset += count;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads from the channel until the buffer contains at least the given number of bytes.
+     */
+    private void require(int length) throws IOException {
+        if (limit - position >= length) {
+            return;
+        }
+
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+
+        byteBuffer.clear();
+        byteBuffer.position(limit);
+        while (limit < length) {
+            int count = channel.read(byteBuffer);
+            if (count < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            limit += count;
+            read += count;
+        }
+
+        if (listener != null) {
+            listener.onProgress(read, total);
+        }
+    }
+}
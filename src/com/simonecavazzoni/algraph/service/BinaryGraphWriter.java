@@ -0,0 +1,120 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Streaming writer of the binary format read by BinaryGraphReader.
+ * @see BinaryGraphReader
+ */
+class BinaryGraphWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Target in the high and weight in the low half, sorted to write the arcs of a node by target
+    private long[] arcs = new long[16];
+
+    /**
+     * @param channel Channel to write, not closed by the writer
+     */
+    BinaryGraphWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param graph Graph to write
+     * @throws IOException If the channel cannot be written
+     */
+    void write(Graph graph) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int arcCount = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            arcCount += graph.getAdjacencies().get(graph.getNode(id)).size();
+        }
+
+        buffer.putInt(BinaryGraphReader.MAGIC);
+        buffer.put(BinaryGraphReader.VERSION);
+        buffer.put(graph.isDirected() ? BinaryGraphReader.DIRECTED : 0);
+        buffer.putInt(nodeCount);
+        buffer.putInt(arcCount);
+
+        for (int id = 0; id < nodeCount; id++) {
+            byte[] label = graph.getNode(id).getLabel().getBytes(StandardCharsets.UTF_8);
+            writeVarint(label.length);
+            writeBytes(label);
+        }
+
+        for (int id = 0; id < nodeCount; id++) {
+            Set<Edge> adjacencies = graph.getAdjacencies().get(graph.getNode(id));
+            int degree = adjacencies.size();
+            if (degree > arcs.length) {
+                arcs = new long[Math.max(degree, arcs.length * 2)];
+            }
+
+            int i = 0;
+            for (Edge e : adjacencies) {
+                arcs[i++] = (long) e.getN2().getId() << 32 | e.getWeight() & 0xFFFFFFFFL;
+            }
+            Arrays.sort(arcs, 0, degree);
+
+            writeVarint(degree);
+            int previous = 0;
+            for (i = 0; i < degree; i++) {
+                int target = (int) (arcs[i] >>> 32);
+                int weight = (int) arcs[i];
+                writeVarint(target - previous);
+                writeVarint(weight << 1 ^ weight >> 31);
+                previous = target;
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Writes an unsigned int in groups of 7 bits, the lowest first, the high bit set on all but the last byte.
+     */
+    private void writeVarint(int value) throws IOException {
+        if (buffer.remaining() < MAX_VARINT_LENGTH) {
+            flush();
+        }
+
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,767 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IntHeap;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchies for fast point to point queries.
+ * Nodes are contracted one at a time in order of edge difference, adding a shortcut between two neighbors
+ * when the path through the contracted node is the only shortest one. Every node gets the rank of its
+ * contraction, and a query is a bidirectional Dijkstra where both searches only move towards higher ranks.
+ * Shortcuts remember the node they skip, so paths are unpacked to the arcs of the original graph.
+ * Working arrays are reused between queries, so an instance must not be shared between threads.
+ */
+public class ContractionHierarchy {
+
+    private static final int MAGIC = 0x43483031;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CsrGraph graph;
+    private final int[] ranks;
+    private final HierarchyGraph upward;
+    private final HierarchyGraph downward;
+
+    private final BidirectionalDijkstra.SearchSpace forward;
+    private final BidirectionalDijkstra.SearchSpace backward;
+
+    /**
+     * @param graph Original graph
+     * @param ranks Contraction order of every node id
+     * @param upward Arcs from every node to higher ranked nodes
+     * @param downward Arcs from higher ranked nodes to every node, stored reversed
+     */
+    private ContractionHierarchy(CsrGraph graph, int[] ranks, HierarchyGraph upward, HierarchyGraph downward) {
+        this.graph = graph;
+        this.ranks = ranks;
+        this.upward = upward;
+        this.downward = downward;
+
+        forward = new BidirectionalDijkstra.SearchSpace(upward);
+        backward = new BidirectionalDijkstra.SearchSpace(downward);
+    }
+
+    /**
+     * Builds the hierarchy of the current state of a graph.
+     * @param graph Graph to analyze
+     * @return Contraction hierarchy, out of date as soon as the graph is modified
+     */
+    public static ContractionHierarchy build(Graph graph) {
+        return build(graph.freeze());
+    }
+
+    /**
+     * Contracts all the nodes of a graph.
+     * @param graph Graph to analyze
+     * @return Contraction hierarchy
+     */
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * @return Original graph
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param node Node id
+     * @return Position of the node in the contraction order
+     */
+    public int getRank(int node) {
+        return ranks[node];
+    }
+
+    /**
+     * @return Number of shortcuts added to the original arcs
+     */
+    public int getShortcutCount() {
+        return upward.getShortcutCount() + downward.getShortcutCount();
+    }
+
+    /**
+     * Computes the shortest path between two nodes of the original graph.
+     * @param source Source node
+     * @param target Target node
+     * @return Shortest path, not existing if a node is missing or not reachable
+     */
+    public ShortestPath query(Node source, Node target) {
+        return query(source == null ? -1 : source.getId(), target == null ? -1 : target.getId());
+    }
+
+    /**
+     * Computes the shortest path between two node ids.
+     * @param source Source node id
+     * @param target Target node id
+     * @return Shortest path, not existing if an id is missing or not reachable
+     */
+    public ShortestPath query(int source, int target) {
+        int n = graph.getNodeCount();
+        if (source < 0 || source >= n || target < 0 || target >= n) {
+            return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], 0);
+        }
+
+        forward.reset(source);
+        backward.reset(target);
+
+        int best = source == target ? 0 : ShortestPathTree.INFINITY;
+        int meeting = source == target ? source : -1;
+        boolean forwardDone = false;
+        boolean backwardDone = false;
+        int settled = 0;
+
+        while (!forwardDone || !backwardDone) {
+            boolean isForward = !forwardDone
+                    && (backwardDone || forward.queue.size() <= backward.queue.size());
+            BidirectionalDijkstra.SearchSpace search = isForward ? forward : backward;
+            BidirectionalDijkstra.SearchSpace other = isForward ? backward : forward;
+
+            int u = search.queue.isEmpty() ? -1 : search.queue.pop();
+
+            // Both searches only go up, so each one can stop alone once its queue passes the best distance
+            if (u == -1 || search.getDistance(u) >= best) {
+                if (isForward) {
+                    forwardDone = true;
+                } else {
+                    backwardDone = true;
+                }
+                continue;
+            }
+
+            int du = search.getDistance(u);
+            settled++;
+
+            int otherDistance = other.getDistance(u);
+            if (otherDistance != ShortestPathTree.INFINITY && (long) du + otherDistance < best) {
+                best = du + otherDistance;
+                meeting = u;
+            }
+
+            for (int e = search.graph.getEdgeStart(u), end = search.graph.getEdgeEnd(u); e < end; e++) {
+                int v = search.graph.getTarget(e);
+                int distance = du + search.graph.getWeight(e);
+                if (distance < search.getDistance(v)) {
+                    search.set(v, distance, u);
+                    search.queue.push(v, distance);
+                }
+            }
+        }
+
+        if (meeting == -1) {
+            return new ShortestPath(graph, ShortestPathTree.INFINITY, new int[0], settled);
+        }
+
+        return new ShortestPath(graph, best, unpack(meeting), settled);
+    }
+
+    /**
+     * Joins the two searches at the meeting node and replaces every shortcut with the arcs it skips.
+     * @param meeting Highest ranked node of the path
+     * @return Node ids from source to target in the original graph
+     */
+    private int[] unpack(int meeting) {
+        int forwardLength = 0;
+        for (int v = meeting; v != -1; v = forward.getParent(v)) {
+            forwardLength++;
+        }
+        int length = forwardLength;
+        for (int v = backward.getParent(meeting); v != -1; v = backward.getParent(v)) {
+            length++;
+        }
+
+        int[] hierarchyPath = new int[length];
+        int i = forwardLength;
+        for (int v = meeting; v != -1; v = forward.getParent(v)) {
+            hierarchyPath[--i] = v;
+        }
+        i = forwardLength;
+        for (int v = backward.getParent(meeting); v != -1; v = backward.getParent(v)) {
+            hierarchyPath[i++] = v;
+        }
+
+        IntStack path = new IntStack();
+        IntStack stack = new IntStack();
+        path.push(hierarchyPath[0]);
+        for (int j = 0; j + 1 < hierarchyPath.length; j++) {
+            stack.push(hierarchyPath[j]);
+            stack.push(hierarchyPath[j + 1]);
+
+            while (!stack.isEmpty()) {
+                int to = stack.pop();
+                int from = stack.pop();
+                int middle = getMiddle(from, to);
+
+                if (middle == -1) {
+                    path.push(to);
+                } else {
+                    stack.push(middle);
+                    stack.push(to);
+                    stack.push(from);
+                    stack.push(middle);
+                }
+            }
+        }
+
+        return path.toArray();
+    }
+
+    /**
+     * @param from Source node id of an arc of the hierarchy
+     * @param to Target node id of the arc
+     * @return Node skipped by the arc, -1 if it is an original arc
+     */
+    private int getMiddle(int from, int to) {
+        if (ranks[from] < ranks[to]) {
+            return upward.getMiddle(upward.find(from, to));
+        }
+        return downward.getMiddle(downward.find(to, from));
+    }
+
+    /**
+     * Writes the hierarchy to a binary file, with a fingerprint of the graph to detect changes on load.
+     * @param file File in which the hierarchy will be saved
+     * @throws IOException If the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(graph.getNodeCount());
+            out.writeLong(graph.getFingerprint());
+
+            for (int rank : ranks) {
+                out.writeInt(rank);
+            }
+            upward.write(out);
+            downward.write(out);
+        }
+    }
+
+    /**
+     * Reads the hierarchy saved for a graph.
+     * @param file File from which the hierarchy will be loaded
+     * @param graph Graph the hierarchy is loaded for
+     * @return Contraction hierarchy, null if it has been built on a different graph
+     * @throws IOException If the file cannot be read or is not a hierarchy file
+     */
+    public static ContractionHierarchy load(File file, CsrGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a contraction hierarchy file");
+            }
+
+            int n = in.readInt();
+            if (n != graph.getNodeCount() || in.readLong() != graph.getFingerprint()) {
+                return null;
+            }
+
+            int[] ranks = new int[n];
+            for (int i = 0; i < n; i++) {
+                ranks[i] = in.readInt();
+            }
+
+            HierarchyGraph upward = HierarchyGraph.read(in, graph);
+            HierarchyGraph downward = HierarchyGraph.read(in, graph);
+            return new ContractionHierarchy(graph, ranks, upward, downward);
+        }
+    }
+
+    /**
+     * Contraction of the nodes on a dynamic copy of the graph.
+     */
+    private static class Builder {
+        private final CsrGraph graph;
+        private final int n;
+
+        private final ArcList[] out;
+        private final ArcList[] in;
+        private final ArcList[] upward;
+        private final ArcList[] downward;
+        private final int[] ranks;
+        private final int[] contractedNeighbors;
+
+        private final IntHeap witnessQueue;
+        private final int[] witnessDistances;
+        private final int[] witnessStamps;
+        private int witnessStamp;
+
+        private Builder(CsrGraph graph) {
+            this.graph = graph;
+            n = graph.getNodeCount();
+
+            out = new ArcList[n];
+            in = new ArcList[n];
+            upward = new ArcList[n];
+            downward = new ArcList[n];
+            for (int i = 0; i < n; i++) {
+                out[i] = new ArcList();
+                in[i] = new ArcList();
+            }
+
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                    int v = graph.getTarget(e);
+                    if (v != u) {
+                        out[u].add(v, graph.getWeight(e), -1);
+                        in[v].add(u, graph.getWeight(e), -1);
+                    }
+                }
+            }
+
+            ranks = new int[n];
+            contractedNeighbors = new int[n];
+
+            witnessQueue = new IntHeap(n);
+            witnessDistances = new int[n];
+            witnessStamps = new int[n];
+        }
+
+        private ContractionHierarchy build() {
+            IntHeap order = new IntHeap(n);
+            for (int v = 0; v < n; v++) {
+                order.push(v, getPriority(v));
+            }
+
+            int rank = 0;
+            while (!order.isEmpty()) {
+                int v = order.pop();
+
+                // Lazy update: priorities change as neighbors are contracted
+                int priority = getPriority(v);
+                if (priority > order.getPriority(v) && !order.isEmpty()) {
+                    order.push(v, priority);
+                    continue;
+                }
+
+                ranks[v] = rank++;
+                contract(v);
+
+                for (int i = 0; i < upward[v].size; i++) {
+                    int w = upward[v].nodes[i];
+                    contractedNeighbors[w]++;
+                    order.push(w, getPriority(w));
+                }
+                for (int i = 0; i < downward[v].size; i++) {
+                    int u = downward[v].nodes[i];
+                    contractedNeighbors[u]++;
+                    order.push(u, getPriority(u));
+                }
+            }
+
+            return new ContractionHierarchy(graph, ranks,
+                    new HierarchyGraph(graph, upward), new HierarchyGraph(graph, downward));
+        }
+
+        /**
+         * @param v Node id not contracted yet
+         * @return Edge difference of the contraction of the node, plus its contracted neighbors
+         */
+        private int getPriority(int v) {
+            return addShortcuts(v, false) - in[v].size - out[v].size + contractedNeighbors[v];
+        }
+
+        /**
+         * Removes a node from the dynamic graph, saving its arcs as arcs of the hierarchy.
+         * @param v Node id to contract
+         */
+        private void contract(int v) {
+            addShortcuts(v, true);
+
+            upward[v] = out[v];
+            downward[v] = in[v];
+            for (int i = 0; i < out[v].size; i++) {
+                in[out[v].nodes[i]].remove(v);
+            }
+            for (int i = 0; i < in[v].size; i++) {
+                out[in[v].nodes[i]].remove(v);
+            }
+            out[v] = null;
+            in[v] = null;
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a node.
+         * @param v Node id to contract
+         * @param add True to add the shortcuts, false to only count them
+         * @return Number of shortcuts
+         */
+        private int addShortcuts(int v, boolean add) {
+            ArcList incoming = in[v];
+            ArcList outgoing = out[v];
+            int count = 0;
+
+            for (int i = 0; i < incoming.size; i++) {
+                int u = incoming.nodes[i];
+
+                int maxDistance = 0;
+                for (int j = 0; j < outgoing.size; j++) {
+                    if (outgoing.nodes[j] != u) {
+                        maxDistance = Math.max(maxDistance, incoming.weights[i] + outgoing.weights[j]);
+                    }
+                }
+                searchWitnesses(u, v, maxDistance);
+
+                for (int j = 0; j < outgoing.size; j++) {
+                    int w = outgoing.nodes[j];
+                    int distance = incoming.weights[i] + outgoing.weights[j];
+                    if (w == u || getWitnessDistance(w) <= distance) {
+                        continue;
+                    }
+
+                    count++;
+                    if (add) {
+                        out[u].add(w, distance, v);
+                        in[w].add(u, distance, v);
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Local Dijkstra from a neighbor of the contracted node, avoiding it,
+         * limited by distance and number of settled nodes. Paths not found are covered by shortcuts.
+         * @param source Neighbor node id
+         * @param excluded Node id being contracted
+         * @param maxDistance Longest path through the contracted node
+         */
+        private void searchWitnesses(int source, int excluded, int maxDistance) {
+            if (witnessStamp == Integer.MAX_VALUE) {
+                Arrays.fill(witnessStamps, 0);
+                witnessStamp = 0;
+            }
+            witnessStamp++;
+
+            witnessQueue.clear();
+            setWitnessDistance(source, 0);
+            witnessQueue.push(source, 0);
+
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                int u = witnessQueue.pop();
+                int du = getWitnessDistance(u);
+                if (du > maxDistance) {
+                    break;
+                }
+                settled++;
+
+                ArcList arcs = out[u];
+                for (int i = 0; i < arcs.size; i++) {
+                    int w = arcs.nodes[i];
+                    int distance = du + arcs.weights[i];
+                    if (w != excluded && distance < getWitnessDistance(w)) {
+                        setWitnessDistance(w, distance);
+                        witnessQueue.push(w, distance);
+                    }
+                }
+            }
+        }
+
+        private int getWitnessDistance(int v) {
+            return witnessStamps[v] == witnessStamp ? witnessDistances[v] : ShortestPathTree.INFINITY;
+        }
+
+        private void setWitnessDistance(int v, int distance) {
+            witnessStamps[v] = witnessStamp;
+            witnessDistances[v] = distance;
+        }
+    }
+
+    /**
+     * Arcs of a node in the dynamic graph, at most one for every neighbor.
+     */
+    private static class ArcList {
+        private int[] nodes = new int[4];
+        private int[] weights = new int[4];
+        private int[] middles = new int[4];
+        private int size;
+
+        /**
+         * Adds an arc, or lowers the weight of the existing one to the same neighbor.
+         * @param node Neighbor node id
+         * @param weight Weight of the arc
+         * @param middle Node skipped by the arc, -1 for an original arc
+         */
+        private void add(int node, int weight, int middle) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    if (weight < weights[i]) {
+                        weights[i] = weight;
+                        middles[i] = middle;
+                    }
+                    return;
+                }
+            }
+
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        /**
+         * @param node Neighbor node id to remove
+         */
+        private void remove(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    size--;
+                    nodes[i] = nodes[size];
+                    weights[i] = weights[size];
+                    middles[i] = middles[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Arcs of the hierarchy towards higher ranked nodes in CSR form, searchable with the usual engines.
+     */
+    private static class HierarchyGraph implements CsrGraph {
+        private final CsrGraph graph;
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] weights;
+        private final int[] middles;
+        private final int maxWeight;
+
+        private volatile HierarchyGraph reversed;
+
+        private HierarchyGraph(CsrGraph graph, ArcList[] arcs) {
+            this.graph = graph;
+
+            offsets = new int[arcs.length + 1];
+            for (int i = 0; i < arcs.length; i++) {
+                offsets[i + 1] = offsets[i] + arcs[i].size;
+            }
+
+            targets = new int[offsets[arcs.length]];
+            weights = new int[offsets[arcs.length]];
+            middles = new int[offsets[arcs.length]];
+            for (int i = 0; i < arcs.length; i++) {
+                System.arraycopy(arcs[i].nodes, 0, targets, offsets[i], arcs[i].size);
+                System.arraycopy(arcs[i].weights, 0, weights, offsets[i], arcs[i].size);
+                System.arraycopy(arcs[i].middles, 0, middles, offsets[i], arcs[i].size);
+            }
+
+            maxWeight = max(weights);
+        }
+
+        private HierarchyGraph(CsrGraph graph, int[] offsets, int[] targets, int[] weights, int[] middles) {
+            this.graph = graph;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.middles = middles;
+
+            maxWeight = max(weights);
+        }
+
+        private static int max(int[] values) {
+            int max = 0;
+            for (int value : values) {
+                max = Math.max(max, value);
+            }
+            return max;
+        }
+
+        /**
+         * @param from Node id
+         * @param to Higher ranked node id
+         * @return Arc between the two nodes
+         */
+        private int find(int from, int to) {
+            for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+                if (targets[e] == to) {
+                    return e;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private int getMiddle(int edge) {
+            return middles[edge];
+        }
+
+        private int getShortcutCount() {
+            int count = 0;
+            for (int middle : middles) {
+                if (middle != -1) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(targets.length);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int e = 0; e < targets.length; e++) {
+                out.writeInt(targets[e]);
+                out.writeInt(weights[e]);
+                out.writeInt(middles[e]);
+            }
+        }
+
+        private static HierarchyGraph read(DataInputStream in, CsrGraph graph) throws IOException {
+            int m = in.readInt();
+            int[] offsets = new int[graph.getNodeCount() + 1];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readInt();
+            }
+
+            int[] targets = new int[m];
+            int[] weights = new int[m];
+            int[] middles = new int[m];
+            for (int e = 0; e < m; e++) {
+                targets[e] = in.readInt();
+                weights[e] = in.readInt();
+                middles[e] = in.readInt();
+            }
+
+            return new HierarchyGraph(graph, offsets, targets, weights, middles);
+        }
+
+        @Override
+        public int getNodeCount() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public int getEdgeCount() {
+            return targets.length;
+        }
+
+        @Override
+        public int getEdgeStart(int node) {
+            return offsets[node];
+        }
+
+        @Override
+        public int getEdgeEnd(int node) {
+            return offsets[node + 1];
+        }
+
+        @Override
+        public int getTarget(int edge) {
+            return targets[edge];
+        }
+
+        @Override
+        public int getWeight(int edge) {
+            return weights[edge];
+        }
+
+        @Override
+        public int getMaxWeight() {
+            return maxWeight;
+        }
+
+        @Override
+        public boolean isDirected() {
+            return true;
+        }
+
+        @Override
+        public String getLabel(int node) {
+            return graph.getLabel(node);
+        }
+
+        @Override
+        public Node getNode(int node) {
+            return graph.getNode(node);
+        }
+
+        @Override
+        public HierarchyGraph reverse() {
+            HierarchyGraph result = reversed;
+            if (result == null) {
+                synchronized (this) {
+                    result = reversed;
+                    if (result == null) {
+                        reversed = result = transpose();
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * @return Hierarchy graph with every arc inverted, keeping the middle node of the shortcuts
+         */
+        private HierarchyGraph transpose() {
+            int n = offsets.length - 1;
+            int m = targets.length;
+
+            int[] reverseOffsets = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                reverseOffsets[targets[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                reverseOffsets[i + 1] += reverseOffsets[i];
+            }
+
+            int[] next = new int[n];
+            System.arraycopy(reverseOffsets, 0, next, 0, n);
+
+            int[] reverseTargets = new int[m];
+            int[] reverseWeights = new int[m];
+            int[] reverseMiddles = new int[m];
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int r = next[targets[e]]++;
+                    reverseTargets[r] = u;
+                    reverseWeights[r] = weights[e];
+                    reverseMiddles[r] = middles[e];
+                }
+            }
+
+            HierarchyGraph transposed = new HierarchyGraph(graph, reverseOffsets, reverseTargets, reverseWeights,
+                    reverseMiddles);
+            transposed.reversed = this;
+            return transposed;
+        }
+    }
+
+    /**
+     * Growable stack of primitive ints.
+     */
+    private static class IntStack {
+        private int[] values = new int[16];
+        private int size;
+
+        private void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int pop() {
+            return values[--size];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
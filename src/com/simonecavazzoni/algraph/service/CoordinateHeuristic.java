@@ -0,0 +1,100 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Node;
+
+/**
+ * Euclidean distance between the node circles, multiplied by a scale factor.
+ * Admissible if no edge is lighter than its length times the scale, see getAdmissibleScale().
+ * Nodes without a UI component have no position, and their estimate falls back to zero.
+ */
+public class CoordinateHeuristic implements Heuristic {
+
+    private final double scale;
+
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private boolean[] positioned = new boolean[0];
+
+    /**
+     * @param scale Weight of a unit of length on the layout
+     */
+    public CoordinateHeuristic(double scale) {
+        if (scale < 0 || Double.isNaN(scale)) {
+            throw new IllegalArgumentException();
+        }
+
+        this.scale = scale;
+    }
+
+    /**
+     * @return Weight of a unit of length on the layout
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Reads the circle centers of the nodes, must be called on the JavaFX thread if the layout can change.
+     * @param graph Graph to analyze
+     */
+    @Override
+    public void prepare(CsrGraph graph) {
+        int n = graph.getNodeCount();
+        xs = new double[n];
+        ys = new double[n];
+        positioned = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            Node node = graph.getNode(i);
+            if (node != null && node.hasUi()) {
+                xs[i] = node.getUi().getCircle().getCenterX();
+                ys[i] = node.getUi().getCircle().getCenterY();
+                positioned[i] = true;
+            }
+        }
+    }
+
+    @Override
+    public int estimate(int node, int target) {
+        if (node >= positioned.length || target >= positioned.length || !positioned[node] || !positioned[target]) {
+            return 0;
+        }
+
+        double estimate = Math.floor(scale * Math.hypot(xs[node] - xs[target], ys[node] - ys[target]));
+        return estimate >= Integer.MAX_VALUE ? Integer.MAX_VALUE - 1 : (int) estimate;
+    }
+
+    /**
+     * Largest scale which keeps the heuristic admissible on a graph: the lowest ratio between weight and length
+     * of the edges whose nodes both have a position.
+     * @param graph Graph to analyze, nodes without a UI component are ignored
+     * @return Admissible scale, 0 if there is no positioned edge
+     */
+    public static double getAdmissibleScale(CsrGraph graph) {
+        double scale = Double.POSITIVE_INFINITY;
+
+        for (int u = 0; u < graph.getNodeCount(); u++) {
+            Node from = graph.getNode(u);
+            if (from == null || !from.hasUi()) {
+                continue;
+            }
+
+            for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                Node to = graph.getNode(graph.getTarget(e));
+                if (to == null || !to.hasUi()) {
+                    continue;
+                }
+
+                double length = Math.hypot(
+                        from.getUi().getCircle().getCenterX() - to.getUi().getCircle().getCenterX(),
+                        from.getUi().getCircle().getCenterY() - to.getUi().getCircle().getCenterY());
+                if (length > 0) {
+                    scale = Math.min(scale, graph.getWeight(e) / length);
+                }
+            }
+        }
+
+        return scale == Double.POSITIVE_INFINITY ? 0 : scale;
+    }
+}
@@ -0,0 +1,328 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel delta-stepping shortest path algorithm.
+ * Nodes are grouped in buckets of width delta, the buckets are processed in order
+ * and the edges leaving the nodes of a bucket are relaxed in parallel on a fork-join pool:
+ * light edges (weight up to delta) until the bucket stays empty, heavy edges once at the end.
+ */
+public class DeltaSteppingEngine {
+
+    /**
+     * Delta value which lets the engine choose the bucket width from the graph
+     */
+    public static final int AUTO_DELTA = 0;
+
+    private static final int SEQUENTIAL_THRESHOLD = 512;
+
+    private final int delta;
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+
+    /**
+     * Instantiates the engine with automatic delta on the common fork-join pool.
+     */
+    public DeltaSteppingEngine() {
+        this(AUTO_DELTA, ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Instantiates the engine with its own fork-join pool, to be released with shutdown().
+     * @param delta Bucket width, AUTO_DELTA to choose it from the graph
+     * @param parallelism Number of worker threads
+     */
+    public DeltaSteppingEngine(int delta, int parallelism) {
+        this(delta, new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * @param delta Bucket width, AUTO_DELTA to choose it from the graph
+     * @param pool Pool running the relaxations
+     */
+    public DeltaSteppingEngine(int delta, ForkJoinPool pool) {
+        this(delta, pool, false);
+    }
+
+    private DeltaSteppingEngine(int delta, ForkJoinPool pool, boolean ownPool) {
+        if (delta < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.delta = delta;
+        this.pool = pool;
+        this.ownPool = ownPool;
+    }
+
+    /**
+     * Releases the worker threads, if the pool has been created by the engine.
+     */
+    public void shutdown() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the shortest path tree from a source node.
+     * @param graph Graph to analyze
+     * @param source Source node
+     * @return Distances and parent tree
+     */
+    public ShortestPathTree compute(Graph graph, Node source) {
+        Node node = graph.getNode(source);
+        return compute(graph.freeze(), node == null ? -1 : node.getId());
+    }
+
+    /**
+     * Computes the shortest path tree from a source node id.
+     * @param graph Graph to analyze
+     * @param source Source node id, -1 to get a tree with no reachable nodes
+     * @return Distances and parent tree
+     */
+    public ShortestPathTree compute(CsrGraph graph, int source) {
+        int n = graph.getNodeCount();
+
+        AtomicLongArray labels = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) {
+            labels.set(i, pack(ShortestPathTree.INFINITY, -1));
+        }
+
+        if (source >= 0 && source < n) {
+            run(graph, source, labels, getDelta(graph));
+        }
+
+        int[] distances = new int[n];
+        int[] parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            long label = labels.get(i);
+            distances[i] = distance(label);
+            parents[i] = parent(label);
+        }
+
+        return new ShortestPathTree(graph, source >= 0 && source < n ? source : -1, distances, parents);
+    }
+
+    /**
+     * @param graph Graph to analyze
+     * @return Bucket width used on the graph
+     */
+    public int getDelta(CsrGraph graph) {
+        if (delta != AUTO_DELTA) {
+            return delta;
+        }
+
+        int averageDegree = Math.max(1, graph.getEdgeCount() / Math.max(1, graph.getNodeCount()));
+        return Math.max(1, graph.getMaxWeight() / averageDegree);
+    }
+
+    /**
+     * Processes the buckets in order until all of them are empty.
+     * @param graph Graph to analyze
+     * @param source Source node id
+     * @param labels Packed distance and parent of every node
+     * @param delta Bucket width
+     */
+    private void run(CsrGraph graph, int source, AtomicLongArray labels, int delta) {
+        TreeMap<Integer, IntList> buckets = new TreeMap<>();
+        int[] frontierMarks = new int[graph.getNodeCount()];
+        int[] settledMarks = new int[graph.getNodeCount()];
+        int iteration = 0;
+        int round = 0;
+
+        labels.set(source, pack(0, -1));
+        insert(buckets, source, 0, delta);
+
+        while (!buckets.isEmpty()) {
+            Map.Entry<Integer, IntList> first = buckets.pollFirstEntry();
+            int bucket = first.getKey();
+            IntList current = first.getValue();
+            IntList settled = new IntList();
+            round++;
+
+            while (current != null) {
+                iteration++;
+
+                IntList frontier = new IntList();
+                for (int i = 0; i < current.size(); i++) {
+                    int u = current.get(i);
+                    if (distance(labels.get(u)) / delta != bucket || frontierMarks[u] == iteration) {
+                        continue;
+                    }
+                    frontierMarks[u] = iteration;
+                    frontier.add(u);
+
+                    if (settledMarks[u] != round) {
+                        settledMarks[u] = round;
+                        settled.add(u);
+                    }
+                }
+
+                relax(graph, labels, buckets, frontier, delta, true);
+                current = buckets.remove(bucket);
+            }
+
+            relax(graph, labels, buckets, settled, delta, false);
+        }
+    }
+
+    /**
+     * Relaxes in parallel the light or heavy edges of a set of nodes and moves the improved nodes to their bucket.
+     * @param graph Graph to analyze
+     * @param labels Packed distance and parent of every node
+     * @param buckets Buckets by index
+     * @param nodes Node ids to relax the edges of
+     * @param delta Bucket width
+     * @param light True to relax light edges, false for heavy edges
+     */
+    private void relax(CsrGraph graph, AtomicLongArray labels, TreeMap<Integer, IntList> buckets, IntList nodes,
+                       int delta, boolean light) {
+        IntList improved = pool.invoke(new RelaxTask(graph, labels, nodes, 0, nodes.size(), delta, light));
+        for (int i = 0; i < improved.size(); i++) {
+            int v = improved.get(i);
+            insert(buckets, v, distance(labels.get(v)), delta);
+        }
+    }
+
+    /**
+     * @param buckets Buckets by index
+     * @param node Node id to insert
+     * @param distance Current distance of the node
+     * @param delta Bucket width
+     */
+    private static void insert(TreeMap<Integer, IntList> buckets, int node, int distance, int delta) {
+        buckets.computeIfAbsent(distance / delta, k -> new IntList()).add(node);
+    }
+
+    /**
+     * Relaxes the light or heavy edges of a range of nodes, splitting the range between the workers.
+     * Returns the nodes whose distance improved.
+     */
+    private static class RelaxTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph graph;
+        private final AtomicLongArray labels;
+        private final IntList nodes;
+        private final int from;
+        private final int to;
+        private final int delta;
+        private final boolean light;
+
+        private RelaxTask(CsrGraph graph, AtomicLongArray labels, IntList nodes, int from, int to, int delta,
+                          boolean light) {
+            this.graph = graph;
+            this.labels = labels;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                RelaxTask left = new RelaxTask(graph, labels, nodes, from, middle, delta, light);
+                RelaxTask right = new RelaxTask(graph, labels, nodes, middle, to, delta, light);
+                left.fork();
+                IntList result = right.compute();
+                result.addAll(left.join());
+                return result;
+            }
+
+            IntList improved = new IntList();
+            for (int i = from; i < to; i++) {
+                int u = nodes.get(i);
+                int du = distance(labels.get(u));
+
+                for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                    int w = graph.getWeight(e);
+                    if ((w <= delta) != light) {
+                        continue;
+                    }
+
+                    int v = graph.getTarget(e);
+                    if (relax(labels, v, du + w, u)) {
+                        improved.add(v);
+                    }
+                }
+            }
+
+            return improved;
+        }
+    }
+
+    /**
+     * Lowers the distance of a node if the new one is smaller, atomically with its parent.
+     * @param labels Packed distance and parent of every node
+     * @param v Node id to relax
+     * @param distance New distance
+     * @param parent New parent
+     * @return True if the distance improved
+     */
+    private static boolean relax(AtomicLongArray labels, int v, int distance, int parent) {
+        long label = labels.get(v);
+        while (distance < distance(label)) {
+            if (labels.compareAndSet(v, label, pack(distance, parent))) {
+                return true;
+            }
+            label = labels.get(v);
+        }
+        return false;
+    }
+
+    private static long pack(int distance, int parent) {
+        return ((long) distance << 32) | (parent & 0xFFFFFFFFL);
+    }
+
+    private static int distance(long label) {
+        return (int) (label >>> 32);
+    }
+
+    private static int parent(long label) {
+        return (int) label;
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    private static class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        private int get(int i) {
+            return values[i];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IntBucketQueue;
+import com.simonecavazzoni.algraph.model.IntPriorityQueue;
+import com.simonecavazzoni.algraph.model.IntRadixHeap;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.Arrays;
+
+/**
+ * Headless Dijkstra algorithm, works on the CSR snapshot of the graph without touching any UI component.
+ * Used when the execution does not need to be shown step by step.
+ */
+public abstract class DijkstraEngine {
+
+    /**
+     * Algorithm name, used as key of cached results
+     */
+    public static final String NAME = "dijkstra";
+
+    private static final int BUCKET_QUEUE_MAX_WEIGHT = 1024;
+
+    /**
+     * Chooses the priority queue for a graph based on its maximum edge weight:
+     * Dial's bucket queue for small weights, radix heap otherwise.
+     * Both are monotone queues, valid for Dijkstra since weights are never negative.
+     * @param graph Graph to analyze
+     * @return Empty priority queue
+     */
+    public static IntPriorityQueue createQueue(CsrGraph graph) {
+        if (graph.getMaxWeight() <= BUCKET_QUEUE_MAX_WEIGHT) {
+            return new IntBucketQueue(graph.getNodeCount(), graph.getMaxWeight());
+        }
+
+        return new IntRadixHeap(graph.getNodeCount());
+    }
+
+    /**
+     * Computes the shortest path tree from a source node.
+     * @param graph Graph to analyze
+     * @param source Source node
+     * @return Distances and parent tree
+     */
+    public static ShortestPathTree compute(Graph graph, Node source) {
+        Node node = graph.getNode(source);
+        return compute(graph.freeze(), node == null ? -1 : node.getId());
+    }
+
+    /**
+     * Computes the shortest path tree from a source node id.
+     * @param graph Graph to analyze
+     * @param source Source node id, -1 to get a tree with no reachable nodes
+     * @return Distances and parent tree
+     */
+    public static ShortestPathTree compute(CsrGraph graph, int source) {
+        int n = graph.getNodeCount();
+
+        int[] distances = new int[n];
+        int[] parents = new int[n];
+        if (source < 0 || source >= n) {
+            Arrays.fill(distances, ShortestPathTree.INFINITY);
+            Arrays.fill(parents, -1);
+            return new ShortestPathTree(graph, -1, distances, parents);
+        }
+
+        compute(graph, source, distances, parents, createQueue(graph));
+        return new ShortestPathTree(graph, source, distances, parents);
+    }
+
+    /**
+     * Computes the distances from a source node id into arrays reused between computations.
+     * @param graph Graph to analyze
+     * @param source Source node id
+     * @param distances Filled with the distance from the source of every node id
+     * @param parents Filled with the parent id of every node id, null if not needed
+     * @param queue Queue used by the computation, emptied before starting
+     */
+    static void compute(CsrGraph graph, int source, int[] distances, int[] parents, IntPriorityQueue queue) {
+        Arrays.fill(distances, ShortestPathTree.INFINITY);
+        if (parents != null) {
+            Arrays.fill(parents, -1);
+        }
+
+        queue.clear();
+        distances[source] = 0;
+        queue.push(source, 0);
+
+        while (!queue.isEmpty()) {
+            int u = queue.pop();
+            int du = distances[u];
+
+            for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                int v = graph.getTarget(e);
+                int distance = du + graph.getWeight(e);
+                if (distance < distances[v]) {
+                    distances[v] = distance;
+                    if (parents != null) {
+                        parents[v] = u;
+                    }
+                    queue.push(v, distance);
+                }
+            }
+        }
+    }
+}
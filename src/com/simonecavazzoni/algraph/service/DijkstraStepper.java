@@ -0,0 +1,258 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IntHeap;
+import com.simonecavazzoni.algraph.model.Node;
+
+/**
+ * Dijkstra pseudo-code executed one line at a time on node ids, without the UI.
+ * Every step is described with the fields stored by a StepTrace, so steps can be executed on a worker thread
+ * and shown later. The graph must not change while steps are executed.
+ */
+public class DijkstraStepper {
+
+    public static final int PROGRAM_COUNTER_END = 10;
+
+    private final Edge[][] adjacencies;
+    private final int source;
+
+    private final int[] distances;
+    private final int[] parents;
+    private final IntHeap queue;
+    private final int[] inserted;
+    private final boolean[] wasInserted;
+    private int insertedCount;
+    private final int[] extracted;
+    private int extractedCount;
+
+    private int programCounter;
+    private int u = -1;
+    private int edgeIndex;
+    private int v = -1;
+    private int w;
+
+    private int line;
+    private int operation;
+    private int node;
+    private int oldValue;
+    private int newValue;
+
+    /**
+     * @param graph Graph to analyze
+     * @param source Starting node
+     */
+    public DijkstraStepper(Graph graph, Node source) {
+        int nodeCount = graph.getNodeCount();
+
+        adjacencies = new Edge[nodeCount][];
+        for (Node n : graph.getNodes()) {
+            adjacencies[n.getId()] = graph.getAdjacencies().get(n).toArray(new Edge[0]);
+        }
+        this.source = source.getId();
+
+        distances = new int[nodeCount];
+        parents = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            distances[i] = i == this.source ? 0 : Integer.MAX_VALUE;
+            parents[i] = -1;
+        }
+
+        queue = new IntHeap(nodeCount);
+        inserted = new int[nodeCount];
+        wasInserted = new boolean[nodeCount];
+        extracted = new int[nodeCount];
+    }
+
+    /**
+     * Executes the current line of the pseudo-code, the step is then described by the getters.
+     */
+    public void step() {
+        if (isFinished()) {
+            throw new IllegalStateException();
+        }
+
+        line = programCounter;
+        operation = StepTrace.NONE;
+        node = -1;
+        oldValue = 0;
+        newValue = 0;
+
+        switch (programCounter) {
+            // S.add(r)
+            case 0:
+                push(source, 0);
+                operation = StepTrace.INIT;
+                break;
+            // while not S.isEmpty() do
+            case 1:
+                if (queue.isEmpty()) {
+                    programCounter = PROGRAM_COUNTER_END - 1;
+                }
+                break;
+            // u <- S.pop()
+            case 2:
+                operation = StepTrace.POP;
+                oldValue = u;
+
+                u = queue.pop();
+                extracted[extractedCount++] = u;
+                edgeIndex = 0;
+
+                // Priorities are set to the new distance, so the extracted priority is the distance
+                node = u;
+                newValue = distances[u];
+                break;
+            // foreach v belonging to G.adj(u) do
+            case 3:
+                if (edgeIndex == adjacencies[u].length) {
+                    programCounter = 0;
+                    break;
+                }
+
+                Edge e = adjacencies[u][edgeIndex];
+                v = e.getN2().getId();
+                w = e.getWeight();
+
+                operation = StepTrace.EDGE;
+                oldValue = edgeIndex;
+                newValue = ++edgeIndex;
+                break;
+            // if d[u] + w(u, v) < d[v] then
+            case 4:
+                if (distances[u] + w >= distances[v]) {
+                    programCounter = 2;
+                }
+                break;
+            // if not b[v] then
+            case 5:
+                if (queue.contains(v)) {
+                    programCounter = 6;
+                }
+                break;
+            // S.insert(v, d[u] + w(u, v))
+            case 6:
+                push(v, distances[u] + w);
+                programCounter = 7;
+
+                operation = StepTrace.PUSH;
+                node = v;
+                newValue = distances[u] + w;
+                break;
+            // else s.update(v, d[u] + w(u, v))
+            case 7:
+                operation = StepTrace.UPDATE;
+                node = v;
+                oldValue = queue.getPriority(v);
+                newValue = distances[u] + w;
+
+                queue.update(v, newValue);
+                break;
+            // d[v] <- d[u] + w(u, v)
+            case 8:
+                operation = StepTrace.DISTANCE;
+                node = v;
+                oldValue = distances[v];
+                newValue = distances[u] + w;
+
+                distances[v] = newValue;
+                break;
+            // T[v] <- u
+            case 9:
+                operation = StepTrace.PARENT;
+                node = v;
+                oldValue = parents[v];
+                newValue = u;
+
+                parents[v] = u;
+                programCounter = 2;
+                break;
+        }
+
+        programCounter++;
+    }
+
+    private void push(int id, int priority) {
+        queue.push(id, priority);
+        if (!wasInserted[id]) {
+            wasInserted[id] = true;
+            inserted[insertedCount++] = id;
+        }
+    }
+
+    /**
+     * @param step Number of steps executed
+     * @return Current state of the algorithm
+     */
+    public StepTrace.Keyframe createKeyframe(int step) {
+        int[] queueNodes = new int[insertedCount];
+        int[] queuePriorities = new int[insertedCount];
+        for (int i = 0; i < insertedCount; i++) {
+            queueNodes[i] = inserted[i];
+            queuePriorities[i] = queue.contains(inserted[i]) ? queue.getPriority(inserted[i]) : -1;
+        }
+
+        int[] extractedIds = new int[extractedCount];
+        System.arraycopy(extracted, 0, extractedIds, 0, extractedCount);
+
+        return new StepTrace.Keyframe(step, programCounter, u, edgeIndex, distances.clone(), parents.clone(),
+                queueNodes, queuePriorities, extractedIds);
+    }
+
+    /**
+     * @param id Node id
+     * @return Edges leaving the node, in the order they are analyzed
+     */
+    public Edge[] getAdjacencies(int id) {
+        return adjacencies[id];
+    }
+
+    /**
+     * @return True if all the lines have been executed
+     */
+    public boolean isFinished() {
+        return programCounter > PROGRAM_COUNTER_END;
+    }
+
+    /**
+     * @return Program counter of the line executed by the last step
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return Program counter after the last step
+     */
+    public int getProgramCounter() {
+        return programCounter;
+    }
+
+    /**
+     * @return Change made by the last step, one of the StepTrace operation constants
+     */
+    public int getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return Node id changed by the last step, -1 if none
+     */
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * @return Value before the last step
+     */
+    public int getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return Value after the last step
+     */
+    public int getNewValue() {
+        return newValue;
+    }
+}
@@ -0,0 +1,78 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Node;
+
+/**
+ * Distances from a set of source nodes to every node, stored in a single flat array with one row per source.
+ */
+public class DistanceMatrix {
+
+    private final CsrGraph graph;
+    private final int[] sources;
+    private final int[] distances;
+
+    /**
+     * @param graph Analyzed graph
+     * @param sources Source node id of every row
+     * @param distances Rows of distances, one after the other
+     */
+    public DistanceMatrix(CsrGraph graph, int[] sources, int[] distances) {
+        if (distances.length != (long) sources.length * graph.getNodeCount()) {
+            throw new IllegalArgumentException();
+        }
+
+        this.graph = graph;
+        this.sources = sources;
+        this.distances = distances;
+    }
+
+    /**
+     * @return Analyzed graph
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return Number of rows, one for every source
+     */
+    public int getRowCount() {
+        return sources.length;
+    }
+
+    /**
+     * @param row Row index
+     * @return Source node id of the row
+     */
+    public int getSourceId(int row) {
+        return sources[row];
+    }
+
+    /**
+     * @param row Row index
+     * @param target Target node id
+     * @return Distance from the source of the row, ShortestPathTree.INFINITY if not reachable
+     */
+    public int getDistance(int row, int target) {
+        return distances[row * graph.getNodeCount() + target];
+    }
+
+    /**
+     * @param source Source node, one of the rows
+     * @param target Target node
+     * @return Distance between the nodes, ShortestPathTree.INFINITY if not reachable or source not in the rows
+     */
+    public int getDistance(Node source, Node target) {
+        if (source == null || target == null || target.getId() < 0 || target.getId() >= graph.getNodeCount()) {
+            return ShortestPathTree.INFINITY;
+        }
+
+        for (int row = 0; row < sources.length; row++) {
+            if (sources[row] == source.getId()) {
+                return getDistance(row, target.getId());
+            }
+        }
+        return ShortestPathTree.INFINITY;
+    }
+}
@@ -0,0 +1,343 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IntHeap;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortest path tree kept up to date while edges are added, removed or change weight,
+ * in the style of Ramalingam and Reps.
+ * A shorter arc propagates the new distances from its target with Dijkstra, visiting only the improved nodes.
+ * A longer or removed tree arc invalidates the subtree below it: every node of the subtree takes the best parent
+ * outside of it, then the distances propagate inside the subtree. Other nodes are never visited.
+ * Adding or removing nodes changes the node ids, so the tree must be computed again.
+ */
+public class DynamicShortestPathTree {
+
+    private final Graph graph;
+    private final int source;
+
+    private final Node[] nodes;
+    private final Arcs[] out;
+    private final Arcs[] in;
+    private final int[] distances;
+    private final int[] parents;
+    private final int nodeCount;
+
+    private final IntHeap queue;
+    private final int[] marks;
+    private int mark;
+    private final List<Integer> changed = new ArrayList<>();
+
+    /**
+     * Computes the tree of the current state of a graph.
+     * @param graph Graph to analyze, edge changes must be notified with updateEdge()
+     * @param source Source node
+     */
+    public DynamicShortestPathTree(Graph graph, Node source) {
+        this(graph, compute(graph, source));
+    }
+
+    /**
+     * Starts from a tree already computed, such as the result of an execution.
+     * @param graph Graph to analyze, edge changes must be notified with updateEdge()
+     * @param tree Tree of a snapshot of the graph, changes made to the graph after the snapshot must be notified
+     */
+    public DynamicShortestPathTree(Graph graph, ShortestPathTree tree) {
+        this.graph = graph;
+
+        CsrGraph snapshot = tree.getGraph();
+        this.source = tree.getSourceId();
+
+        nodeCount = snapshot.getNodeCount();
+        nodes = new Node[nodeCount];
+        out = new Arcs[nodeCount];
+        in = new Arcs[nodeCount];
+        distances = new int[nodeCount];
+        parents = new int[nodeCount];
+        marks = new int[nodeCount];
+
+        for (int u = 0; u < nodeCount; u++) {
+            nodes[u] = snapshot.getNode(u);
+            out[u] = new Arcs();
+            in[u] = new Arcs();
+            distances[u] = tree.getDistance(u);
+            parents[u] = tree.getParentId(u);
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = snapshot.getEdgeStart(u), end = snapshot.getEdgeEnd(u); e < end; e++) {
+                out[u].set(snapshot.getTarget(e), snapshot.getWeight(e));
+                in[snapshot.getTarget(e)].set(u, snapshot.getWeight(e));
+            }
+        }
+
+        queue = new IntHeap(nodeCount);
+    }
+
+    /**
+     * @return Tree of the current state of a graph
+     */
+    private static ShortestPathTree compute(Graph graph, Node source) {
+        Node node = graph.getNode(source);
+        return DijkstraEngine.compute(graph.freeze(), node == null ? -1 : node.getId());
+    }
+
+    /**
+     * @return Source node, null if it was not in the graph
+     */
+    public Node getSource() {
+        return source == -1 ? null : nodes[source];
+    }
+
+    /**
+     * @param node Node of the graph
+     * @return Distance from the source, ShortestPathTree.INFINITY if not reachable
+     */
+    public int getDistance(Node node) {
+        int id = getId(node);
+        return id == -1 ? ShortestPathTree.INFINITY : distances[id];
+    }
+
+    /**
+     * @param node Node of the graph
+     * @return Parent in the tree, null for the source and unreachable nodes
+     */
+    public Node getParent(Node node) {
+        int id = getId(node);
+        return id == -1 || parents[id] == -1 ? null : nodes[parents[id]];
+    }
+
+    /**
+     * @return Nodes whose distance or parent changed with the last update
+     */
+    public List<Node> getChangedNodes() {
+        List<Node> result = new ArrayList<>(changed.size());
+        for (int id : changed) {
+            result.add(nodes[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Reads from the graph the current state of the edges between two nodes and repairs the tree.
+     * Both directions are updated on undirected graphs.
+     * @param n1 First node
+     * @param n2 Second node
+     */
+    public void updateEdge(Node n1, Node n2) {
+        changed.clear();
+
+        int u = getId(n1);
+        int v = getId(n2);
+        if (u == -1 || v == -1) {
+            throw new IllegalArgumentException();
+        }
+
+        updateArc(u, v, graph.getEdge(n1, n2));
+        if (!graph.isDirected()) {
+            updateArc(v, u, graph.getEdge(n2, n1));
+        }
+    }
+
+    /**
+     * @param u Source node id of the arc
+     * @param v Target node id of the arc
+     * @param edge Edge of the graph, null if removed
+     */
+    private void updateArc(int u, int v, Edge edge) {
+        int oldWeight = out[u].get(v);
+        int newWeight = edge == null ? ShortestPathTree.INFINITY : edge.getWeight();
+
+        if (edge == null) {
+            out[u].remove(v);
+            in[v].remove(u);
+        } else {
+            out[u].set(v, newWeight);
+            in[v].set(u, newWeight);
+        }
+
+        if (newWeight < oldWeight) {
+            decrease(u, v, newWeight);
+        } else if (newWeight > oldWeight && parents[v] == u) {
+            increase(v);
+        }
+    }
+
+    /**
+     * Propagates a shorter arc from its target.
+     * @param u Source node id of the arc
+     * @param v Target node id of the arc
+     * @param weight New weight of the arc
+     */
+    private void decrease(int u, int v, int weight) {
+        if (distances[u] == ShortestPathTree.INFINITY || distances[u] + weight >= distances[v]) {
+            return;
+        }
+
+        queue.clear();
+        setDistance(v, distances[u] + weight, u);
+        queue.push(v, distances[v]);
+        propagate();
+    }
+
+    /**
+     * Repairs the subtree below a tree arc which became longer or was removed.
+     * @param root Target node id of the arc
+     */
+    private void increase(int root) {
+        nextMark();
+
+        // Subtree of the root, found following the tree arcs
+        List<Integer> subtree = new ArrayList<>();
+        subtree.add(root);
+        marks[root] = mark;
+        for (int i = 0; i < subtree.size(); i++) {
+            int x = subtree.get(i);
+            Arcs arcs = out[x];
+            for (int j = 0; j < arcs.size; j++) {
+                int y = arcs.nodes[j];
+                if (parents[y] == x && marks[y] != mark) {
+                    marks[y] = mark;
+                    subtree.add(y);
+                }
+            }
+        }
+
+        // Best parent outside of the subtree, whose distances are still valid
+        queue.clear();
+        for (int x : subtree) {
+            int distance = ShortestPathTree.INFINITY;
+            int parent = -1;
+
+            Arcs arcs = in[x];
+            for (int j = 0; j < arcs.size; j++) {
+                int p = arcs.nodes[j];
+                if (marks[p] != mark && distances[p] != ShortestPathTree.INFINITY
+                        && distances[p] + arcs.weights[j] < distance) {
+                    distance = distances[p] + arcs.weights[j];
+                    parent = p;
+                }
+            }
+
+            setDistance(x, distance, parent);
+            if (distance != ShortestPathTree.INFINITY) {
+                queue.push(x, distance);
+            }
+        }
+
+        propagate();
+    }
+
+    /**
+     * Dijkstra from the nodes in the queue, stops where distances do not improve.
+     */
+    private void propagate() {
+        while (!queue.isEmpty()) {
+            int x = queue.pop();
+
+            Arcs arcs = out[x];
+            for (int j = 0; j < arcs.size; j++) {
+                int y = arcs.nodes[j];
+                int distance = distances[x] + arcs.weights[j];
+                if (distance < distances[y]) {
+                    setDistance(y, distance, x);
+                    queue.push(y, distance);
+                }
+            }
+        }
+    }
+
+    private void setDistance(int v, int distance, int parent) {
+        if (distances[v] != distance || parents[v] != parent) {
+            changed.add(v);
+        }
+        distances[v] = distance;
+        parents[v] = parent;
+    }
+
+    private void nextMark() {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            mark = 0;
+        }
+        mark++;
+    }
+
+    /**
+     * @param node Node of the graph
+     * @return Id of the node in the tree, -1 if not in the tree
+     */
+    private int getId(Node node) {
+        if (node == null) {
+            return -1;
+        }
+
+        int id = node.getId();
+        return id >= 0 && id < nodeCount && nodes[id] == node ? id : -1;
+    }
+
+    /**
+     * Arcs of a node with their weights, at most one for every neighbor.
+     */
+    private static class Arcs {
+        private int[] nodes = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        /**
+         * @param node Neighbor node id
+         * @return Weight of the arc, ShortestPathTree.INFINITY if missing
+         */
+        private int get(int node) {
+            int i = indexOf(node);
+            return i == -1 ? ShortestPathTree.INFINITY : weights[i];
+        }
+
+        /**
+         * @param node Neighbor node id
+         * @param weight Weight of the arc, added if missing
+         */
+        private void set(int node, int weight) {
+            int i = indexOf(node);
+            if (i != -1) {
+                weights[i] = weight;
+                return;
+            }
+
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            size++;
+        }
+
+        /**
+         * @param node Neighbor node id to remove
+         */
+        private void remove(int node) {
+            int i = indexOf(node);
+            if (i != -1) {
+                size--;
+                nodes[i] = nodes[size];
+                weights[i] = weights[size];
+            }
+        }
+
+        private int indexOf(int node) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] == node) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable list of edges as node ids and weights, filled by the loaders and added to the graph at once.
+ */
+class EdgeList {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] sources;
+    private int[] targets;
+    private int[] weights;
+    private int size;
+
+    EdgeList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Initial number of edges
+     */
+    EdgeList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        sources = new int[capacity];
+        targets = new int[capacity];
+        weights = new int[capacity];
+    }
+
+    /**
+     * @param source Id of the first node
+     * @param target Id of the second node
+     * @param weight Weight of the edge
+     */
+    void add(int source, int target, int weight) {
+        if (size == sources.length) {
+            int capacity = size * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+
+        sources[size] = source;
+        targets[size] = target;
+        weights[size] = weight;
+        size++;
+    }
+
+    /**
+     * @return Number of edges
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the edges to a graph with a single bulk insertion.
+     * @param graph Graph containing the nodes of the edges
+     */
+    void addTo(Graph graph) {
+        graph.addEdges(sources, targets, weights, size);
+    }
+
+    /**
+     * Adds the edges of many lists to a graph with a single bulk insertion, without copying them together.
+     * @param graph Graph containing the nodes of the edges
+     * @param lists Lists to add, in order
+     */
+    static void addTo(Graph graph, List<EdgeList> lists) {
+        int[][] sources = new int[lists.size()][];
+        int[][] targets = new int[lists.size()][];
+        int[][] weights = new int[lists.size()][];
+        int[] counts = new int[lists.size()];
+        for (int i = 0; i < lists.size(); i++) {
+            EdgeList list = lists.get(i);
+            sources[i] = list.sources;
+            targets[i] = list.targets;
+            weights[i] = list.weights;
+            counts[i] = list.size;
+        }
+
+        graph.addEdges(sources, targets, weights, counts);
+    }
+}
@@ -1,10 +1,18 @@
 package com.simonecavazzoni.algraph.service;
 
-import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.CsrGraph;
 import com.simonecavazzoni.algraph.model.Graph;
-import com.simonecavazzoni.algraph.model.Node;
+import com.simonecavazzoni.algraph.model.MappedGraph;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *This class handle the file saving and loading process
@@ -14,43 +22,63 @@ public abstract class FileHandler {
 
     private static File currentFile = null;
 
+    /**
+     * Listener for the progress of long file operations
+     */
+    public interface ProgressListener {
+        /**
+         * @param done Number of bytes processed
+         * @param total Number of bytes to process
+         */
+        void onProgress(long done, long total);
+    }
+
+    /**
+     * Content written to a file by writeAtomically()
+     */
+    private interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
     public static File getCurrentFile() {
         return currentFile;
     }
 
     /**
-     * rgerger
      * @param graph Graph to save
      * @param file File i which the graph will be saved
      * @throws IOException
      * This method save a generated graph to a file passed as parameter
      */
     public static void saveGraph(Graph graph, File file) throws IOException {
-        if (file == null) {
-            throw new IOException();
-        }
-        currentFile = file;
-
-        FileWriter fileout = new FileWriter(file);
-
-        if (graph.getAdjacencies().size() != 0) { //check for adjacencies
-            writeWS(fileout, graph.isDirected() ? "1" : "0");
-            fileout.write("\r\n");
-        }
-
-        for (Node n : graph.getNodes()) {
-            writeWS(fileout, n.getLabel());
-        }
-        fileout.write("\r\n");
+        saveGraph(graph, file, false);
+    }
 
-        for (Edge e : graph.getEdges()) {
-            writeWS(fileout, e.getN1().getLabel());
-            writeWS(fileout, e.getN2().getLabel());
-            writeWS(fileout, String.valueOf(e.getWeight()));
-            fileout.write("\r\n");
-        }
+    /**
+     * Saves a graph in the text or in the binary format, the file is never left half written.
+     * @param graph Graph to save
+     * @param file File in which the graph will be saved
+     * @param binary True to use the binary format
+     * @throws IOException If the file cannot be written
+     */
+    public static void saveGraph(Graph graph, File file, boolean binary) throws IOException {
+        writeAtomically(file, channel -> {
+            if (binary) {
+                new BinaryGraphWriter(channel).write(graph);
+            } else {
+                new TextGraphWriter(channel).write(graph);
+            }
+        });
+    }
 
-        fileout.close(); // close the file
+    /**
+     * Saves a graph in the binary layout that can be memory mapped by mapGraph().
+     * @param graph Graph to save
+     * @param file File in which the graph will be saved
+     * @throws IOException If the file cannot be written
+     */
+    public static void saveMappableGraph(Graph graph, File file) throws IOException {
+        writeAtomically(file, channel -> new MappedGraphFile(channel).write(graph.freeze()));
     }
 
     /**
@@ -60,49 +88,139 @@ public abstract class FileHandler {
      * This method load graph from the file passed as parameter
      */
     public static Graph loadGraph(File file) throws IOException {
+        return loadGraph(file, null);
+    }
+
+    /**
+     * Loads a graph streaming the file through a large buffer, the file is always closed.
+     * The format is detected from the magic number at the start of binary files.
+     * @param file The file from which the graph will be loaded
+     * @param listener Listener notified of the bytes read, null if none
+     * @return Loaded graph
+     * @throws IOException If the file cannot be read or is not valid
+     */
+    public static Graph loadGraph(File file, ProgressListener listener) throws IOException {
+        return loadGraph(file, listener, null);
+    }
+
+    /**
+     * Loads a graph as loadGraph(File, ProgressListener), parsing the edges of large text files on a fork-join pool.
+     * Binary files and small text files are always read by the calling thread.
+     * @param file The file from which the graph will be loaded
+     * @param listener Listener notified of the bytes read, also called by the workers, null if none
+     * @param pool Pool parsing the edges, null to read the file on the calling thread
+     * @return Loaded graph
+     * @throws IOException If the file cannot be read or is not valid
+     */
+    public static Graph loadGraph(File file, ProgressListener listener, ForkJoinPool pool) throws IOException {
         if (file == null) {
             throw new IOException();
         }
         currentFile = file;
 
-        BufferedReader fileIn = new BufferedReader(new FileReader(file));
-        String line;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    break;
+                }
+            }
+            channel.position(0);
+
+            if (!magic.hasRemaining() && magic.getInt(0) == BinaryGraphReader.MAGIC) {
+                ByteBuffer version = ByteBuffer.allocate(1);
+                if (channel.read(version, Integer.BYTES) == 1 && version.get(0) == MappedGraphFile.VERSION) {
+                    return toGraph(MappedGraphFile.map(channel));
+                }
+                return new BinaryGraphReader(channel, channel.size(), listener).read();
+            }
+            if (pool != null && channel.size() >= ParallelGraphReader.MIN_FILE_SIZE) {
+                return new ParallelGraphReader(channel, pool, listener).read();
+            }
+            return new TextGraphReader(channel, channel.size(), listener).read();
+        }
+    }
 
-        if ((line = fileIn.readLine()) == null) {
+    /**
+     * Maps a file saved by saveMappableGraph(), without loading it on the heap.
+     * The graph can be used by the engines working on a CsrGraph, and stays valid after the file is closed.
+     * @param file File to map
+     * @return Read only graph served from the file
+     * @throws IOException If the file cannot be mapped or is not valid
+     */
+    public static MappedGraph mapGraph(File file) throws IOException {
+        if (file == null) {
             throw new IOException();
         }
-        Graph graph = new Graph(line.split(" ")[0].equals("1"));
 
-        if ((line = fileIn.readLine()) == null) {
-            throw new IOException();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return MappedGraphFile.map(channel);
         }
-        for (String label : line.split(" ")) {
-            graph.addNode(label);
+    }
+
+    /**
+     * @param csrGraph Graph to copy
+     * @return Editable graph with the same nodes, ids and arcs
+     * @throws IOException If two nodes have the same label
+     */
+    private static Graph toGraph(CsrGraph csrGraph) throws IOException {
+        Graph graph = new Graph(csrGraph.isDirected());
+        for (int u = 0; u < csrGraph.getNodeCount(); u++) {
+            if (graph.addNode(csrGraph.getLabel(u)) == null) {
+                throw new IOException("Duplicate label");
+            }
         }
 
-        while ((line = fileIn.readLine()) != null) {
-            String[] parts = line.split(" ");
-            Edge edge = graph.addEdge(parts[0], parts[1]);
-            if (edge != null) {
-                edge.setWeight(Integer.parseInt(parts[2]));
+        EdgeList edges = new EdgeList(csrGraph.getEdgeCount());
+        for (int u = 0; u < csrGraph.getNodeCount(); u++) {
+            for (int e = csrGraph.getEdgeStart(u), end = csrGraph.getEdgeEnd(u); e < end; e++) {
+                edges.add(u, csrGraph.getTarget(e), csrGraph.getWeight(e));
             }
         }
+        edges.addTo(graph);
 
         return graph;
     }
 
     /**
-     * @param fileOut Input stream parameter
-     * @param s String passed as parameter
-     *          This method is an efficient way to write spaces between char(used in saveGraph)
+     * Writes a file to a temporary file in the same directory, which then replaces the file,
+     * so the file is never left half written.
+     * @param file File to write
+     * @param writer Writer of the content
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeAtomically(File file, ChannelWriter writer) throws IOException {
+        if (file == null) {
+            throw new IOException();
+        }
+        currentFile = file;
+
+        Path target = file.toPath().toAbsolutePath();
+        // Created as a normal file, so the saved file gets the default permissions
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+            }
+            replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a file over another one, atomically if the file system allows it.
+     * @param source File to move
+     * @param target File to replace
+     * @throws IOException If the file cannot be moved
      */
-    private static void writeWS(FileWriter fileOut, String s) {
+    private static void replace(Path source, Path target) throws IOException {
         try {
-            fileOut.write(s);
-            fileOut.write(" ");
-        } catch (IOException e) {
-            e.printStackTrace();
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 }
-
@@ -0,0 +1,194 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * All pairs shortest paths with a cache blocked Floyd-Warshall on a flat distance matrix.
+ * The matrix is split in square tiles which fit in cache. For every diagonal tile the algorithm updates
+ * the tile itself, then the tiles in its row and column, then all the others: tiles of the last two
+ * phases are independent and run in parallel on a fork-join pool.
+ * Faster than repeated Dijkstra on small dense graphs, see isPreferred().
+ */
+public abstract class FloydWarshallEngine {
+
+    /**
+     * Minimum density |E| / |V|^2 for which Floyd-Warshall is preferred to repeated Dijkstra
+     */
+    public static final double MIN_DENSITY = 0.5;
+
+    /**
+     * Maximum number of nodes for which Floyd-Warshall is preferred, the matrix takes 4 |V|^2 bytes
+     */
+    public static final int MAX_NODES = 4096;
+
+    private static final int TILE = 64;
+
+    /**
+     * Infinity inside the matrix, small enough to sum two of them without overflow,
+     * so the inner loop needs no branches
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    /**
+     * @param graph Graph to analyze
+     * @return True if Floyd-Warshall is expected to be faster than repeated Dijkstra on the graph
+     */
+    public static boolean isPreferred(CsrGraph graph) {
+        int n = graph.getNodeCount();
+        return n > 0 && n <= MAX_NODES && (double) graph.getEdgeCount() / ((double) n * n) >= MIN_DENSITY
+                && isSupported(graph);
+    }
+
+    /**
+     * @param graph Graph to analyze
+     * @return True if the longest possible path fits in the matrix
+     */
+    public static boolean isSupported(CsrGraph graph) {
+        return (long) graph.getMaxWeight() * Math.max(0, graph.getNodeCount() - 1) < UNREACHABLE;
+    }
+
+    /**
+     * Computes the distances between all pairs of nodes on the common fork-join pool.
+     * @param graph Graph to analyze
+     * @return Matrix with one row for every node id, in order
+     */
+    public static DistanceMatrix compute(Graph graph) {
+        return compute(graph.freeze(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the distances between all pairs of nodes.
+     * @param graph Graph to analyze
+     * @param pool Pool running the tiles of every phase
+     * @return Matrix with one row for every node id, in order
+     */
+    public static DistanceMatrix compute(CsrGraph graph, ForkJoinPool pool) {
+        int n = graph.getNodeCount();
+        if ((long) n * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Matrix too large");
+        }
+        if (!isSupported(graph)) {
+            throw new IllegalArgumentException("Weights too large");
+        }
+
+        int[] matrix = new int[n * n];
+        Arrays.fill(matrix, UNREACHABLE);
+        for (int u = 0; u < n; u++) {
+            matrix[u * n + u] = 0;
+            for (int e = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); e < end; e++) {
+                int index = u * n + graph.getTarget(e);
+                matrix[index] = Math.min(matrix[index], graph.getWeight(e));
+            }
+        }
+
+        int tiles = (n + TILE - 1) / TILE;
+        for (int k = 0; k < tiles; k++) {
+            new TileTask(matrix, n, k, k, k).compute();
+
+            List<TileTask> tasks = new ArrayList<>();
+            for (int t = 0; t < tiles; t++) {
+                if (t != k) {
+                    tasks.add(new TileTask(matrix, n, k, t, k));
+                    tasks.add(new TileTask(matrix, n, t, k, k));
+                }
+            }
+            invokeAll(pool, tasks);
+
+            tasks.clear();
+            for (int i = 0; i < tiles; i++) {
+                for (int j = 0; j < tiles; j++) {
+                    if (i != k && j != k) {
+                        tasks.add(new TileTask(matrix, n, i, j, k));
+                    }
+                }
+            }
+            invokeAll(pool, tasks);
+        }
+
+        for (int i = 0; i < matrix.length; i++) {
+            if (matrix[i] >= UNREACHABLE) {
+                matrix[i] = ShortestPathTree.INFINITY;
+            }
+        }
+
+        int[] sources = new int[n];
+        for (int i = 0; i < n; i++) {
+            sources[i] = i;
+        }
+        return new DistanceMatrix(graph, sources, matrix);
+    }
+
+    /**
+     * @param pool Pool running the tasks
+     * @param tasks Independent tasks, all completed when the method returns
+     */
+    private static void invokeAll(ForkJoinPool pool, List<TileTask> tasks) {
+        if (!tasks.isEmpty()) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    /**
+     * Relaxes the paths of a tile through the nodes of a diagonal tile.
+     */
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] matrix;
+        private final int n;
+        private final int row;
+        private final int column;
+        private final int pivot;
+
+        /**
+         * @param matrix Flat distance matrix
+         * @param n Number of nodes
+         * @param row Row of the tile
+         * @param column Column of the tile
+         * @param pivot Index of the diagonal tile
+         */
+        private TileTask(int[] matrix, int n, int row, int column, int pivot) {
+            this.matrix = matrix;
+            this.n = n;
+            this.row = row;
+            this.column = column;
+            this.pivot = pivot;
+        }
+
+        @Override
+        protected void compute() {
+            int rowEnd = Math.min(n, (row + 1) * TILE);
+            int columnStart = column * TILE;
+            int columnEnd = Math.min(n, (column + 1) * TILE);
+            int pivotEnd = Math.min(n, (pivot + 1) * TILE);
+
+            for (int k = pivot * TILE; k < pivotEnd; k++) {
+                int kRow = k * n;
+                for (int i = row * TILE; i < rowEnd; i++) {
+                    int iRow = i * n;
+                    int ik = matrix[iRow + k];
+                    if (ik == UNREACHABLE) {
+                        continue;
+                    }
+
+                    for (int j = columnStart; j < columnEnd; j++) {
+                        matrix[iRow + j] = Math.min(matrix[iRow + j], ik + matrix[kRow + j]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -86,9 +86,8 @@ public abstract class GraphGenerator {
                 rand2 = random.nextInt(numNodes);
             }
 
-            Node[] nodes = graph.getAdjacencies().keySet().toArray(new Node[0]);
-            Node n1 = nodes[rand1];
-            Node n2 = nodes[rand2];
+            Node n1 = graph.getNode(rand1);
+            Node n2 = graph.getNode(rand2);
 
             Edge newEdge = new Edge(n1, n2, Edge.MIN_WEIGHT, directed);
             int weight = random.nextInt(maxWeight - minWeight + 1) + minWeight;
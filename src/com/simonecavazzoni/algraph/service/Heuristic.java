@@ -0,0 +1,30 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+
+/**
+ * Lower bound of the distance between two nodes, used by A* to direct the search towards the target.
+ * The estimate must never exceed the real distance, otherwise the path found may not be the shortest.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    /**
+     * Heuristic with no information, A* behaves as Dijkstra
+     */
+    Heuristic ZERO = (node, target) -> 0;
+
+    /**
+     * Called once before the queries on a graph, to read what the estimates need.
+     * @param graph Graph to analyze
+     */
+    default void prepare(CsrGraph graph) {
+    }
+
+    /**
+     * @param node Node id
+     * @param target Target node id
+     * @return Lower bound of the distance from the node to the target
+     */
+    int estimate(int node, int target);
+}
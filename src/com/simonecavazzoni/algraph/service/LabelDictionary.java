@@ -0,0 +1,134 @@
+package com.simonecavazzoni.algraph.service;
+
+import java.util.Arrays;
+
+/**
+ * Hash dictionary from node labels to node ids, with labels looked up as raw bytes.
+ * Used by the loaders to resolve the labels of the edges without building a String for every token.
+ * Lookups can be made by many threads once all the labels have been added.
+ */
+class LabelDictionary {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private byte[] bytes = new byte[DEFAULT_CAPACITY * 8];
+    private int bytesSize;
+    // Start and end of the bytes of every entry
+    private int[] bounds = new int[DEFAULT_CAPACITY * 2];
+    private int[] ids = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    // Hash and entry index + 1 of every slot, entry 0 if empty, kept together to probe a single array
+    private int[] slots = new int[DEFAULT_CAPACITY * 4];
+
+    /**
+     * Adds a label, if not already present.
+     * @param label Bytes containing the label
+     * @param offset Index of the first byte of the label
+     * @param length Number of bytes of the label
+     * @param id Id of the node
+     * @return True if the label has been added
+     */
+    public boolean put(byte[] label, int offset, int length, int id) {
+        if (get(label, offset, length) != -1) {
+            return false;
+        }
+
+        if (size == ids.length) {
+            int capacity = size * 2;
+            bounds = Arrays.copyOf(bounds, capacity * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            rehash(capacity * 2);
+        }
+        if (bytesSize + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesSize + length));
+        }
+
+        System.arraycopy(label, offset, bytes, bytesSize, length);
+        bounds[size * 2] = bytesSize;
+        bounds[size * 2 + 1] = bytesSize + length;
+        ids[size] = id;
+        bytesSize += length;
+
+        int hash = hash(label, offset, length);
+        int slot = findSlot(hash, label, offset, length);
+        slots[slot] = hash;
+        slots[slot + 1] = ++size;
+        return true;
+    }
+
+    /**
+     * @param label Bytes containing the label
+     * @param offset Index of the first byte of the label
+     * @param length Number of bytes of the label
+     * @return Id of the node, -1 if the label does not exist
+     */
+    public int get(byte[] label, int offset, int length) {
+        int entry = slots[findSlot(hash(label, offset, length), label, offset, length) + 1];
+        return entry == 0 ? -1 : ids[entry - 1];
+    }
+
+    /**
+     * @return Number of labels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Index in slots of the label, or of the empty slot where it should be added
+     */
+    private int findSlot(int hash, byte[] label, int offset, int length) {
+        int mask = slots.length - 1;
+        int slot = (hash << 1) & mask;
+
+        while (slots[slot + 1] != 0
+                && (slots[slot] != hash || !matches(slots[slot + 1] - 1, label, offset, length))) {
+            slot = (slot + 2) & mask;
+        }
+
+        return slot;
+    }
+
+    private boolean matches(int entry, byte[] label, int offset, int length) {
+        int start = bounds[entry * 2];
+        if (bounds[entry * 2 + 1] - start != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] != label[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param capacity New number of slots
+     */
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity * 2];
+        int mask = slots.length - 1;
+
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i + 1] != 0) {
+                int slot = (old[i] << 1) & mask;
+                while (slots[slot + 1] != 0) {
+                    slot = (slot + 2) & mask;
+                }
+                slots[slot] = old[i];
+                slots[slot + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private static int hash(byte[] label, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = (hash ^ label[i]) * 0x01000193;
+        }
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,130 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Landmark tables of a graph, recomputed on demand when the graph is modified
+ * (nodes or edges added or removed, direction or weights changed).
+ */
+public class LandmarkIndex {
+
+    public static final String FILE_EXTENSION = ".landmarks";
+
+    private final Graph graph;
+    private final int count;
+    private final Landmarks.Selection selection;
+    private final ForkJoinPool pool;
+
+    private Landmarks landmarks;
+    private long version;
+    private AStarSearch search;
+
+    /**
+     * Instantiates the index computing the tables on the common fork-join pool.
+     * @param graph Graph to analyze
+     * @param count Number of landmarks
+     * @param selection Landmark selection strategy
+     */
+    public LandmarkIndex(Graph graph, int count, Landmarks.Selection selection) {
+        this(graph, count, selection, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph Graph to analyze
+     * @param count Number of landmarks
+     * @param selection Landmark selection strategy
+     * @param pool Pool computing the distance tables
+     */
+    public LandmarkIndex(Graph graph, int count, Landmarks.Selection selection, ForkJoinPool pool) {
+        this.graph = graph;
+        this.count = count;
+        this.selection = selection;
+        this.pool = pool;
+    }
+
+    /**
+     * @return True if the tables have been computed on the current state of the graph
+     */
+    public boolean isValid() {
+        return landmarks != null && version == graph.getVersion();
+    }
+
+    /**
+     * @return Landmark tables of the current state of the graph, computed if out of date
+     */
+    public Landmarks getLandmarks() {
+        if (!isValid()) {
+            setLandmarks(Landmarks.compute(graph.freeze(), count, selection, pool));
+        }
+
+        return landmarks;
+    }
+
+    /**
+     * Computes the shortest path between two nodes with A* and the landmark bounds.
+     * @param source Source node
+     * @param target Target node
+     * @return Shortest path, not existing if a node is missing or not reachable
+     */
+    public ShortestPath query(Node source, Node target) {
+        getLandmarks();
+
+        if (search == null) {
+            search = new AStarSearch(landmarks.getGraph(), landmarks);
+        }
+
+        return search.query(graph.getNode(source), graph.getNode(target));
+    }
+
+    /**
+     * @param graphFile File of the graph
+     * @return File of the landmark tables, next to the graph file
+     */
+    public static File getFile(File graphFile) {
+        return new File(graphFile.getPath() + FILE_EXTENSION);
+    }
+
+    /**
+     * Saves the tables next to the graph file, computing them if out of date.
+     * @param graphFile File of the graph
+     * @throws IOException If the file cannot be written
+     */
+    public void save(File graphFile) throws IOException {
+        getLandmarks().save(getFile(graphFile));
+    }
+
+    /**
+     * Loads the tables saved next to the graph file.
+     * @param graphFile File of the graph
+     * @return True if the tables have been loaded, false if missing or computed on a different graph
+     * @throws IOException If the file cannot be read
+     */
+    public boolean load(File graphFile) throws IOException {
+        File file = getFile(graphFile);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        Landmarks loaded = Landmarks.load(file, graph.freeze());
+        if (loaded == null) {
+            return false;
+        }
+
+        setLandmarks(loaded);
+        return true;
+    }
+
+    /**
+     * @param landmarks Tables of the current state of the graph
+     */
+    private void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+        version = graph.getVersion();
+        search = null;
+    }
+}
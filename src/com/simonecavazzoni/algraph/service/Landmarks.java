@@ -0,0 +1,347 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ALT heuristic (A*, landmarks, triangle inequality).
+ * Distances from and to a few landmark nodes are precomputed, then for every landmark L
+ * d(L, t) - d(L, v) and d(v, L) - d(t, L) are lower bounds of d(v, t).
+ * Tables are immutable and refer to a single snapshot of the graph, see LandmarkIndex to keep them up to date.
+ */
+public class Landmarks implements Heuristic {
+
+    /**
+     * Landmark selection strategies
+     */
+    public enum Selection {
+        /**
+         * Every landmark is the node farthest from the ones already chosen
+         */
+        FARTHEST,
+        /**
+         * Every landmark is a leaf of the shortest path tree of a random root, reached following
+         * the subtrees where the current landmarks give the worst bounds (Goldberg and Werneck)
+         */
+        AVOID
+    }
+
+    private static final int MAGIC = 0x414C5431;
+    private static final long SEED = 42;
+
+    private final CsrGraph graph;
+    private final int[] landmarks;
+    private final int[][] forward;
+    private final int[][] backward;
+
+    /**
+     * @param graph Analyzed graph
+     * @param landmarks Landmark node ids
+     * @param forward Distances from every landmark to every node id
+     * @param backward Distances from every node id to every landmark
+     */
+    private Landmarks(CsrGraph graph, int[] landmarks, int[][] forward, int[][] backward) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.forward = forward;
+        this.backward = backward;
+    }
+
+    /**
+     * Selects the landmarks and computes their distance tables.
+     * The tables of every landmark are computed on the pool while the next one is being selected.
+     * @param graph Graph to analyze
+     * @param count Number of landmarks, limited to the number of nodes
+     * @param selection Landmark selection strategy
+     * @param pool Pool computing the distance tables
+     * @return Landmark tables of the graph
+     */
+    public static Landmarks compute(CsrGraph graph, int count, Selection selection, ForkJoinPool pool) {
+        if (count < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int n = graph.getNodeCount();
+        count = Math.min(count, n);
+
+        int[] landmarks = new int[count];
+        int[][] forward = new int[count][];
+        int[][] backward = new int[count][];
+
+        if (selection == Selection.FARTHEST) {
+            selectFarthest(graph, landmarks, forward, backward, pool);
+        } else {
+            selectAvoid(graph, landmarks, forward, backward, pool);
+        }
+
+        return new Landmarks(graph, landmarks, forward, backward);
+    }
+
+    /**
+     * Farthest selection: the forward tables drive the selection and are computed on the caller thread,
+     * the backward tables run on the pool meanwhile.
+     */
+    private static void selectFarthest(CsrGraph graph, int[] landmarks, int[][] forward, int[][] backward,
+                                       ForkJoinPool pool) {
+        int n = graph.getNodeCount();
+        if (landmarks.length == 0) {
+            return;
+        }
+
+        CsrGraph reverse = graph.reverse();
+        List<ForkJoinTask<int[]>> tasks = new ArrayList<>(landmarks.length);
+        boolean[] isLandmark = new boolean[n];
+
+        int[] nearest = distances(graph, new Random(SEED).nextInt(n));
+        for (int i = 0; i < landmarks.length; i++) {
+            int landmark = -1;
+            for (int v = 0; v < n; v++) {
+                if (!isLandmark[v] && (landmark == -1 || nearest[v] > nearest[landmark])) {
+                    landmark = v;
+                }
+            }
+
+            int chosen = landmark;
+            landmarks[i] = chosen;
+            isLandmark[chosen] = true;
+            tasks.add(pool.submit(() -> distances(reverse, chosen)));
+
+            forward[i] = distances(graph, chosen);
+            if (i == 0) {
+                nearest = forward[0].clone();
+            } else {
+                for (int v = 0; v < n; v++) {
+                    nearest[v] = Math.min(nearest[v], forward[i][v]);
+                }
+            }
+        }
+
+        for (int i = 0; i < landmarks.length; i++) {
+            backward[i] = tasks.get(i).join();
+        }
+    }
+
+    /**
+     * Avoid selection: the shortest path tree of the next root is computed on the caller thread
+     * while the tables of the last landmark run on the pool.
+     */
+    private static void selectAvoid(CsrGraph graph, int[] landmarks, int[][] forward, int[][] backward,
+                                    ForkJoinPool pool) {
+        int n = graph.getNodeCount();
+        CsrGraph reverse = graph.reverse();
+        Random random = new Random(SEED);
+        boolean[] isLandmark = new boolean[n];
+
+        int[] firstChild = new int[n];
+        int[] nextSibling = new int[n];
+        int[] order = new int[n];
+        long[] sizes = new long[n];
+        boolean[] covered = new boolean[n];
+
+        ForkJoinTask<int[]> forwardTask = null;
+        ForkJoinTask<int[]> backwardTask = null;
+
+        for (int i = 0; i < landmarks.length; i++) {
+            int root = random.nextInt(n);
+            while (isLandmark[root]) {
+                root = random.nextInt(n);
+            }
+            ShortestPathTree tree = DijkstraEngine.compute(graph, root);
+
+            if (i > 0) {
+                forward[i - 1] = forwardTask.join();
+                backward[i - 1] = backwardTask.join();
+            }
+
+            Arrays.fill(firstChild, -1);
+            for (int v = 0; v < n; v++) {
+                int parent = tree.getParentId(v);
+                if (parent != -1) {
+                    nextSibling[v] = firstChild[parent];
+                    firstChild[parent] = v;
+                }
+            }
+
+            int size = 0;
+            order[size++] = root;
+            for (int j = 0; j < size; j++) {
+                for (int child = firstChild[order[j]]; child != -1; child = nextSibling[child]) {
+                    order[size++] = child;
+                }
+            }
+
+            // Subtree sizes weighted by the error of the current bounds, zero for subtrees containing a landmark
+            for (int j = size - 1; j >= 0; j--) {
+                int v = order[j];
+                sizes[v] = 0;
+                covered[v] = isLandmark[v];
+                for (int child = firstChild[v]; child != -1; child = nextSibling[child]) {
+                    sizes[v] += sizes[child];
+                    covered[v] |= covered[child];
+                }
+
+                sizes[v] = covered[v] ? 0 : sizes[v] + tree.getDistance(v) - bound(forward, backward, i, root, v);
+            }
+
+            int landmark = root;
+            while (firstChild[landmark] != -1) {
+                int best = firstChild[landmark];
+                for (int child = nextSibling[best]; child != -1; child = nextSibling[child]) {
+                    if (sizes[child] > sizes[best]) {
+                        best = child;
+                    }
+                }
+                if (sizes[best] == 0) {
+                    break;
+                }
+                landmark = best;
+            }
+
+            int chosen = landmark;
+            landmarks[i] = chosen;
+            isLandmark[chosen] = true;
+            forwardTask = pool.submit(() -> distances(graph, chosen));
+            backwardTask = pool.submit(() -> distances(reverse, chosen));
+        }
+
+        if (landmarks.length > 0) {
+            forward[landmarks.length - 1] = forwardTask.join();
+            backward[landmarks.length - 1] = backwardTask.join();
+        }
+    }
+
+    /**
+     * @param graph Graph to analyze
+     * @param source Source node id
+     * @return Distance from the source of every node id
+     */
+    private static int[] distances(CsrGraph graph, int source) {
+        return DijkstraEngine.compute(graph, source).getDistanceArray();
+    }
+
+    /**
+     * Lower bound of a distance given by the first landmarks.
+     * @param forward Distances from the landmarks
+     * @param backward Distances to the landmarks
+     * @param count Number of landmarks to use
+     * @param node Node id
+     * @param target Target node id
+     * @return Lower bound of the distance from the node to the target
+     */
+    private static int bound(int[][] forward, int[][] backward, int count, int node, int target) {
+        int bound = 0;
+
+        for (int i = 0; i < count; i++) {
+            int toNode = forward[i][node];
+            int toTarget = forward[i][target];
+            if (toNode != ShortestPathTree.INFINITY && toTarget != ShortestPathTree.INFINITY) {
+                bound = Math.max(bound, toTarget - toNode);
+            }
+
+            int fromNode = backward[i][node];
+            int fromTarget = backward[i][target];
+            if (fromNode != ShortestPathTree.INFINITY && fromTarget != ShortestPathTree.INFINITY) {
+                bound = Math.max(bound, fromNode - fromTarget);
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * @param graph Graph the queries run on, must be the one the tables have been computed on
+     */
+    @Override
+    public void prepare(CsrGraph graph) {
+        if (graph.getNodeCount() != this.graph.getNodeCount()) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public int estimate(int node, int target) {
+        return bound(forward, backward, landmarks.length, node, target);
+    }
+
+    /**
+     * @return Graph the tables have been computed on
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return Landmark node ids
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Writes the tables to a binary file, with a fingerprint of the graph to detect changes on load.
+     * @param file File in which the tables will be saved
+     * @throws IOException If the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(graph.getNodeCount());
+            out.writeLong(graph.getFingerprint());
+            out.writeInt(landmarks.length);
+
+            for (int i = 0; i < landmarks.length; i++) {
+                out.writeInt(landmarks[i]);
+                for (int v = 0; v < graph.getNodeCount(); v++) {
+                    out.writeInt(forward[i][v]);
+                }
+                for (int v = 0; v < graph.getNodeCount(); v++) {
+                    out.writeInt(backward[i][v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the tables saved for a graph.
+     * @param file File from which the tables will be loaded
+     * @param graph Graph the tables are loaded for
+     * @return Landmark tables, null if they have been computed on a different graph
+     * @throws IOException If the file cannot be read or is not a landmark file
+     */
+    public static Landmarks load(File file, CsrGraph graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a landmark file");
+            }
+
+            int n = in.readInt();
+            if (n != graph.getNodeCount() || in.readLong() != graph.getFingerprint()) {
+                return null;
+            }
+
+            int count = in.readInt();
+            int[] landmarks = new int[count];
+            int[][] forward = new int[count][n];
+            int[][] backward = new int[count][n];
+
+            for (int i = 0; i < count; i++) {
+                landmarks[i] = in.readInt();
+                for (int v = 0; v < n; v++) {
+                    forward[i][v] = in.readInt();
+                }
+                for (int v = 0; v < n; v++) {
+                    backward[i][v] = in.readInt();
+                }
+            }
+
+            return new Landmarks(graph, landmarks, forward, backward);
+        }
+    }
+}
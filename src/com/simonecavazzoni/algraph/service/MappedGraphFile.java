@@ -0,0 +1,249 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.MappedGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Version 2 of the binary graph format, laid out to be memory mapped as a MappedGraph.
+ * The 32 bytes header holds the magic number, the version, the flags (bit 0 set if directed), two reserved
+ * bytes, the node count, the arc count, the maximum weight, a reserved int and the size of the labels as a long.
+ * Then come the sections, as big endian ints: offsets, targets and weights of the arcs, the same three for the
+ * reversed arcs if the graph is directed, and the offsets of the labels, followed by the UTF-8 labels.
+ */
+class MappedGraphFile {
+
+    static final byte VERSION = 2;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * @param channel Channel to write, not closed by the writer
+     */
+    MappedGraphFile(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @param graph Graph to write
+     * @throws IOException If the channel cannot be written or the labels are larger than 2 GB
+     */
+    void write(CsrGraph graph) throws IOException {
+        int nodeCount = graph.getNodeCount();
+
+        byte[][] labels = new byte[nodeCount][];
+        long labelSize = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            labels[u] = graph.getLabel(u).getBytes(StandardCharsets.UTF_8);
+            labelSize += labels[u].length;
+        }
+        if (labelSize > Integer.MAX_VALUE) {
+            throw new IOException("Labels too large");
+        }
+
+        buffer.putInt(BinaryGraphReader.MAGIC);
+        buffer.put(VERSION);
+        buffer.put(graph.isDirected() ? BinaryGraphReader.DIRECTED : 0);
+        buffer.putShort((short) 0);
+        buffer.putInt(nodeCount);
+        buffer.putInt(graph.getEdgeCount());
+        buffer.putInt(graph.getMaxWeight());
+        buffer.putInt(0);
+        buffer.putLong(labelSize);
+
+        writeArcs(graph);
+        if (graph.isDirected()) {
+            writeArcs(graph.reverse());
+        }
+
+        int offset = 0;
+        writeInt(offset);
+        for (byte[] label : labels) {
+            offset += label.length;
+            writeInt(offset);
+        }
+        for (byte[] label : labels) {
+            writeBytes(label);
+        }
+
+        flush();
+    }
+
+    private void writeArcs(CsrGraph graph) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        for (int u = 0; u < nodeCount; u++) {
+            writeInt(graph.getEdgeStart(u));
+        }
+        writeInt(nodeCount == 0 ? 0 : graph.getEdgeEnd(nodeCount - 1));
+
+        for (int e = 0; e < edgeCount; e++) {
+            writeInt(graph.getTarget(e));
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            writeInt(graph.getWeight(e));
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush();
+        }
+        buffer.putInt(value);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Maps a file, the mapping stays valid after the channel is closed.
+     * Offsets and targets are checked with a sequential read, so the engines never index outside the sections.
+     * @param channel Channel of the file
+     * @return Graph served from the mapping
+     * @throws IOException If the file cannot be mapped or is not a valid version 2 file
+     */
+    static MappedGraph map(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        header.flip();
+
+        if (header.getInt() != BinaryGraphReader.MAGIC || header.get() != VERSION) {
+            throw new IOException("Not a mappable graph file");
+        }
+        boolean directed = (header.get() & BinaryGraphReader.DIRECTED) != 0;
+        header.getShort();
+        int nodeCount = header.getInt();
+        int edgeCount = header.getInt();
+        int maxWeight = header.getInt();
+        header.getInt();
+        long labelSize = header.getLong();
+        if (nodeCount < 0 || edgeCount < 0 || labelSize < 0 || labelSize > Integer.MAX_VALUE) {
+            throw new IOException("Invalid header");
+        }
+
+        long arcsSize = Integer.BYTES * (nodeCount + 1L + 2L * edgeCount);
+        long size = HEADER_SIZE + (directed ? 2 : 1) * arcsSize + Integer.BYTES * (nodeCount + 1L) + labelSize;
+        if (channel.size() != size) {
+            throw new IOException("Invalid file size");
+        }
+
+        long position = HEADER_SIZE;
+        IntBuffer[] offsets = mapInts(channel, position, nodeCount + 1L);
+        IntBuffer[] targets = mapInts(channel, position += Integer.BYTES * (nodeCount + 1L), edgeCount);
+        IntBuffer[] weights = mapInts(channel, position += Integer.BYTES * (long) edgeCount, edgeCount);
+        position += Integer.BYTES * (long) edgeCount;
+
+        IntBuffer[] reverseOffsets = null;
+        IntBuffer[] reverseTargets = null;
+        IntBuffer[] reverseWeights = null;
+        if (directed) {
+            reverseOffsets = mapInts(channel, position, nodeCount + 1L);
+            reverseTargets = mapInts(channel, position += Integer.BYTES * (nodeCount + 1L), edgeCount);
+            reverseWeights = mapInts(channel, position += Integer.BYTES * (long) edgeCount, edgeCount);
+            position += Integer.BYTES * (long) edgeCount;
+        }
+
+        IntBuffer[] labelOffsets = mapInts(channel, position, nodeCount + 1L);
+        position += Integer.BYTES * (nodeCount + 1L);
+        ByteBuffer labelBytes = channel.map(FileChannel.MapMode.READ_ONLY, position, labelSize);
+
+        checkOffsets(offsets, edgeCount);
+        checkTargets(targets, nodeCount);
+        if (directed) {
+            checkOffsets(reverseOffsets, edgeCount);
+            checkTargets(reverseTargets, nodeCount);
+        }
+        checkOffsets(labelOffsets, labelSize);
+
+        return new MappedGraph(directed, maxWeight, offsets, targets, weights,
+                reverseOffsets, reverseTargets, reverseWeights, labelOffsets, labelBytes);
+    }
+
+    /**
+     * Checks that offsets start at 0, never decrease and end at the length of the section they index.
+     * @param offsets Mapped offsets
+     * @param length Length of the indexed section
+     * @throws IOException If an offset is not valid
+     */
+    private static void checkOffsets(IntBuffer[] offsets, long length) throws IOException {
+        int previous = 0;
+        for (IntBuffer chunk : offsets) {
+            for (int i = 0; i < chunk.limit(); i++) {
+                int offset = chunk.get(i);
+                if (offset < previous) {
+                    throw new IOException("Invalid offsets");
+                }
+                previous = offset;
+            }
+        }
+
+        if (offsets[0].get(0) != 0 || previous != length) {
+            throw new IOException("Invalid offsets");
+        }
+    }
+
+    /**
+     * @param targets Mapped targets
+     * @param nodeCount Number of nodes
+     * @throws IOException If a target is not the id of a node
+     */
+    private static void checkTargets(IntBuffer[] targets, int nodeCount) throws IOException {
+        for (IntBuffer chunk : targets) {
+            for (int i = 0; i < chunk.limit(); i++) {
+                int target = chunk.get(i);
+                if (target < 0 || target >= nodeCount) {
+                    throw new IOException("Invalid arc");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Section of ints mapped in chunks of MappedGraph.CHUNK_SIZE ints
+     */
+    private static IntBuffer[] mapInts(FileChannel channel, long position, long length) throws IOException {
+        IntBuffer[] chunks = new IntBuffer[(int) Math.max(1, (length + MappedGraph.CHUNK_SIZE - 1)
+                / MappedGraph.CHUNK_SIZE)];
+
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i * MappedGraph.CHUNK_SIZE;
+            long count = Math.min(MappedGraph.CHUNK_SIZE, length - start);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + Integer.BYTES * start,
+                    Integer.BYTES * count).asIntBuffer();
+        }
+        return chunks;
+    }
+}
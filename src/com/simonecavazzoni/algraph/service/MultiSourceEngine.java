@@ -0,0 +1,186 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.IntPriorityQueue;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shortest paths from many sources, up to all pairs, as independent Dijkstra computations on a fork-join pool.
+ * Sources are split in chunks, and every chunk reuses the same queue and distance array for all its sources.
+ */
+public class MultiSourceEngine {
+
+    /**
+     * Receives the distances from a source, called concurrently by the workers.
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+        /**
+         * @param row Index of the source in the requested sources
+         * @param source Source node id
+         * @param distances Distance from the source of every node id, reused after the call returns
+         */
+        void accept(int row, int source, int[] distances);
+    }
+
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+
+    /**
+     * Instantiates the engine on the common fork-join pool.
+     */
+    public MultiSourceEngine() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Instantiates the engine with its own fork-join pool, to be released with shutdown().
+     * @param parallelism Number of worker threads
+     */
+    public MultiSourceEngine(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * @param pool Pool running the computations
+     */
+    public MultiSourceEngine(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private MultiSourceEngine(ForkJoinPool pool, boolean ownPool) {
+        this.pool = pool;
+        this.ownPool = ownPool;
+    }
+
+    /**
+     * Releases the worker threads, if the pool has been created by the engine.
+     */
+    public void shutdown() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the distances between all pairs of nodes of the current state of a graph.
+     * @param graph Graph to analyze
+     * @return Matrix with one row for every node id, in order
+     */
+    public DistanceMatrix computeAllPairs(Graph graph) {
+        return computeAllPairs(graph.freeze());
+    }
+
+    /**
+     * Computes the distances between all pairs of nodes, with Floyd-Warshall on small dense graphs
+     * and repeated Dijkstra otherwise.
+     * @param graph Graph to analyze
+     * @return Matrix with one row for every node id, in order
+     */
+    public DistanceMatrix computeAllPairs(CsrGraph graph) {
+        if (FloydWarshallEngine.isPreferred(graph)) {
+            return FloydWarshallEngine.compute(graph, pool);
+        }
+
+        int[] sources = new int[graph.getNodeCount()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        return computeMatrix(graph, sources);
+    }
+
+    /**
+     * Computes the distances from a set of source nodes.
+     * @param graph Graph to analyze
+     * @param sources Source nodes of the graph
+     * @return Matrix with one row for every source, in iteration order
+     */
+    public DistanceMatrix computeMatrix(Graph graph, Collection<Node> sources) {
+        int[] ids = sources.stream().map(graph::getNode).mapToInt(n -> n == null ? -1 : n.getId()).toArray();
+        return computeMatrix(graph.freeze(), ids);
+    }
+
+    /**
+     * Computes the distances from a set of source node ids into a flat matrix.
+     * @param graph Graph to analyze
+     * @param sources Source node ids, -1 for a row with no reachable nodes
+     * @return Matrix with one row for every source
+     */
+    public DistanceMatrix computeMatrix(CsrGraph graph, int[] sources) {
+        int n = graph.getNodeCount();
+        if ((long) sources.length * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Matrix too large, use computeRows");
+        }
+
+        int[] matrix = new int[sources.length * n];
+        computeRows(graph, sources, (row, source, distances) -> System.arraycopy(distances, 0, matrix, row * n, n));
+        return new DistanceMatrix(graph, sources.clone(), matrix);
+    }
+
+    /**
+     * Computes the distances from a set of source node ids, passing every row to a consumer
+     * as soon as it is ready, so the whole matrix is never kept in memory.
+     * @param graph Graph to analyze
+     * @param sources Source node ids, -1 for a row with no reachable nodes
+     * @param consumer Receives the rows, from several threads at once
+     */
+    public void computeRows(CsrGraph graph, int[] sources, RowConsumer consumer) {
+        int chunk = Math.max(1, sources.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        pool.invoke(new SourcesTask(graph, sources, 0, sources.length, chunk, consumer));
+    }
+
+    /**
+     * Splits the sources until a chunk is small enough, then computes its rows one after the other.
+     */
+    private static class SourcesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph graph;
+        private final int[] sources;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final RowConsumer consumer;
+
+        private SourcesTask(CsrGraph graph, int[] sources, int from, int to, int chunk, RowConsumer consumer) {
+            this.graph = graph;
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SourcesTask(graph, sources, from, middle, chunk, consumer),
+                        new SourcesTask(graph, sources, middle, to, chunk, consumer));
+                return;
+            }
+
+            int n = graph.getNodeCount();
+            int[] distances = new int[n];
+            IntPriorityQueue queue = DijkstraEngine.createQueue(graph);
+
+            for (int row = from; row < to; row++) {
+                int source = sources[row];
+                if (source >= 0 && source < n) {
+                    DijkstraEngine.compute(graph, source, distances, null, queue);
+                } else {
+                    Arrays.fill(distances, ShortestPathTree.INFINITY);
+                }
+                consumer.accept(row, source, distances);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reader of the text format parsing the edge lines on a fork-join pool.
+ * The nodes are read first, then the edge section is split in chunks starting at the beginning of a line.
+ * Every chunk is parsed by a TextGraphReader into its own EdgeList, and the lists are added to the graph
+ * in file order with a single bulk insertion.
+ */
+class ParallelGraphReader {
+
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final long MIN_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * Smaller files would be parsed as a single chunk, so they are read by TextGraphReader
+     */
+    static final long MIN_FILE_SIZE = 2 * MIN_CHUNK_SIZE;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+    private final FileHandler.ProgressListener listener;
+
+    /**
+     * @param channel Channel of the file, read only with positional reads
+     * @param pool Pool parsing the chunks
+     * @param listener Listener notified of the bytes read, called by the workers, null if none
+     */
+    ParallelGraphReader(FileChannel channel, ForkJoinPool pool, FileHandler.ProgressListener listener) {
+        this.channel = channel;
+        this.pool = pool;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Graph read from the file
+     * @throws IOException If the file cannot be read or its content is not valid
+     */
+    Graph read() throws IOException {
+        long size = channel.size();
+
+        LabelDictionary dictionary = new LabelDictionary();
+        TextGraphReader nodesReader = new TextGraphReader(new RangeChannel(channel, 0, size), size, null);
+        Graph graph = nodesReader.readNodes(dictionary);
+        long start = nodesReader.getOffset();
+
+        long[] bounds = split(start, size);
+        AtomicLong progress = new AtomicLong(start);
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            tasks.add(new ChunkTask(dictionary, bounds[i], bounds[i + 1], size, progress));
+        }
+
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<EdgeList> edges = new ArrayList<>(tasks.size());
+        for (ChunkTask task : tasks) {
+            edges.add(task.edges);
+        }
+        EdgeList.addTo(graph, edges);
+
+        return graph;
+    }
+
+    /**
+     * Splits the edge section in chunks of about the same size, moving every bound to the start of a line.
+     * @param start Offset of the first edge line
+     * @param end Size of the file
+     * @return Bounds of the chunks, from start to end
+     */
+    private long[] split(long start, long end) throws IOException {
+        long length = end - start;
+        int chunks = (int) Math.max(1, Math.min((long) pool.getParallelism() * CHUNKS_PER_WORKER,
+                length / MIN_CHUNK_SIZE));
+
+        long[] bounds = new long[chunks + 1];
+        bounds[0] = start;
+        bounds[chunks] = end;
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        for (int i = 1; i < chunks; i++) {
+            long bound = Math.max(start + length * i / chunks, bounds[i - 1]);
+            bounds[i] = nextLine(bound, end, buffer);
+        }
+        return bounds;
+    }
+
+    /**
+     * @return Offset of the first line starting at or after the position, the end if none
+     */
+    private long nextLine(long position, long end, ByteBuffer buffer) throws IOException {
+        // The chunk starts at the position if the previous byte ends a line
+        long offset = position - 1;
+        while (offset < end) {
+            buffer.clear();
+            int count = channel.read(buffer, offset);
+            if (count < 0) {
+                break;
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += count;
+        }
+        return end;
+    }
+
+    /**
+     * Parses the edge lines of a chunk into its own list.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final LabelDictionary dictionary;
+        private final long from;
+        private final long to;
+        private final long size;
+        private final AtomicLong progress;
+
+        private final EdgeList edges = new EdgeList();
+
+        private ChunkTask(LabelDictionary dictionary, long from, long to, long size, AtomicLong progress) {
+            this.dictionary = dictionary;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            long[] reported = {0};
+            FileHandler.ProgressListener chunkListener = listener == null ? null : (done, total) -> {
+                listener.onProgress(progress.addAndGet(done - reported[0]), size);
+                reported[0] = done;
+            };
+
+            try {
+                new TextGraphReader(new RangeChannel(channel, from, to), to - from, chunkListener)
+                        .readEdges(dictionary, edges);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Channel reading a range of a file with positional reads, so many can read the same file at once.
+     */
+    private static class RangeChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private RangeChannel(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+
+            int limit = dst.limit();
+            dst.limit((int) Math.min(limit, dst.position() + end - position));
+            try {
+                int count = channel.read(dst, position);
+                if (count > 0) {
+                    position += count;
+                }
+                return count;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The file channel is closed by its owner
+        }
+    }
+}
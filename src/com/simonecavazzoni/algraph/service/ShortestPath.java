@@ -0,0 +1,85 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a point to point shortest path query.
+ */
+public class ShortestPath {
+
+    private final CsrGraph graph;
+    private final int distance;
+    private final int[] path;
+    private final int settledCount;
+
+    /**
+     * @param graph Analyzed graph
+     * @param distance Length of the path, ShortestPathTree.INFINITY if the target is not reachable
+     * @param path Node ids from source to target, empty if the target is not reachable
+     * @param settledCount Number of nodes extracted from the queues during the query
+     */
+    public ShortestPath(CsrGraph graph, int distance, int[] path, int settledCount) {
+        this.graph = graph;
+        this.distance = distance;
+        this.path = path;
+        this.settledCount = settledCount;
+    }
+
+    /**
+     * @return True if the target is reachable from the source
+     */
+    public boolean exists() {
+        return distance != ShortestPathTree.INFINITY;
+    }
+
+    /**
+     * @return Length of the path, ShortestPathTree.INFINITY if the target is not reachable
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Node ids from source to target
+     */
+    public int[] getPathIds() {
+        return path;
+    }
+
+    /**
+     * @return Nodes from source to target
+     */
+    public List<Node> getNodes() {
+        List<Node> nodes = new ArrayList<>(path.length);
+        for (int id : path) {
+            nodes.add(graph.getNode(id));
+        }
+        return nodes;
+    }
+
+    /**
+     * Edges of the path, resolved on a Graph so that the result works for snapshots and mapped graphs alike.
+     * @param graph Graph with the same node ids as the analyzed graph
+     * @return Edges from source to target
+     */
+    public List<Edge> getEdges(Graph graph) {
+        List<Edge> edges = new ArrayList<>(Math.max(0, path.length - 1));
+        for (int i = 0; i + 1 < path.length; i++) {
+            edges.add(graph.getEdge(graph.getNode(path[i]), graph.getNode(path[i + 1])));
+        }
+        return edges;
+    }
+
+    /**
+     * @return Number of nodes extracted from the queues, to compare the work done by different algorithms
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+}
@@ -0,0 +1,223 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of shortest path trees, keyed by graph version, source node and algorithm.
+ * The least recently used trees are evicted when the estimated memory of the cached trees and of the snapshots
+ * they refer to exceeds the limit.
+ * Only the current version of one graph is kept: trees of older versions or of other graphs are dropped
+ * on the next request, so a replaced graph is not kept reachable by the cache.
+ */
+public class ShortestPathCache {
+
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final long ENTRY_OVERHEAD = 128;
+    private static final long REFERENCE_SIZE = 8;
+
+    private final long maxSize;
+    private final LinkedHashMap<Key, ShortestPathTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<CsrGraph, Integer> snapshots = new IdentityHashMap<>();
+
+    private long size;
+    private long hits;
+    private long misses;
+
+    public ShortestPathCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize Maximum estimated memory of the cached trees, in bytes
+     */
+    public ShortestPathCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the cached tree of the current version of a graph, computing and caching it if missing.
+     * @param graph Graph to analyze
+     * @param source Source node
+     * @param algorithm Name of the algorithm computing the tree
+     * @param compute Computes the tree if it is not cached
+     * @return Shortest path tree
+     */
+    public synchronized ShortestPathTree get(Graph graph, Node source, String algorithm,
+                                             Supplier<ShortestPathTree> compute) {
+        Key key = new Key(graph, graph.getVersion(), source, algorithm);
+        removeStale(key);
+
+        ShortestPathTree tree = trees.get(key);
+        if (tree != null) {
+            hits++;
+            return tree;
+        }
+        misses++;
+
+        tree = compute.get();
+        put(key, tree);
+        return tree;
+    }
+
+    /**
+     * @param key Key of the tree
+     * @param tree Tree to cache
+     */
+    private void put(Key key, ShortestPathTree tree) {
+        long treeSize = getSize(tree);
+        if (!snapshots.containsKey(tree.getGraph())) {
+            treeSize += getSize(tree.getGraph());
+        }
+        if (treeSize > maxSize) {
+            return;
+        }
+
+        trees.put(key, tree);
+        size += getSize(tree);
+        if (snapshots.merge(tree.getGraph(), 1, Integer::sum) == 1) {
+            size += getSize(tree.getGraph());
+        }
+
+        Iterator<ShortestPathTree> iterator = trees.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            ShortestPathTree evicted = iterator.next();
+            iterator.remove();
+            removed(evicted);
+        }
+    }
+
+    /**
+     * Drops the trees which can never be requested again: other graphs and older versions of the graph.
+     * @param key Key of the requested tree
+     */
+    private void removeStale(Key key) {
+        Iterator<Map.Entry<Key, ShortestPathTree>> iterator = trees.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, ShortestPathTree> entry = iterator.next();
+            if (entry.getKey().graph != key.graph || entry.getKey().version != key.version) {
+                iterator.remove();
+                removed(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Updates the estimated memory after a tree has been removed, the snapshot is released with its last tree.
+     * @param tree Removed tree
+     */
+    private void removed(ShortestPathTree tree) {
+        size -= getSize(tree);
+
+        int count = snapshots.get(tree.getGraph()) - 1;
+        if (count == 0) {
+            snapshots.remove(tree.getGraph());
+            size -= getSize(tree.getGraph());
+        } else {
+            snapshots.put(tree.getGraph(), count);
+        }
+    }
+
+    /**
+     * Removes all the cached trees, counters are kept.
+     */
+    public synchronized void clear() {
+        trees.clear();
+        snapshots.clear();
+        size = 0;
+    }
+
+    /**
+     * @return Number of requests answered by the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return Number of requests which needed a computation
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Number of cached trees
+     */
+    public synchronized int getTreeCount() {
+        return trees.size();
+    }
+
+    /**
+     * @return Estimated memory of the cached trees and of their snapshots, in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @param tree Shortest path tree
+     * @return Estimated memory of the tree: distance and parent arrays plus the entry
+     */
+    private static long getSize(ShortestPathTree tree) {
+        return ENTRY_OVERHEAD + 2L * Integer.BYTES * tree.getGraph().getNodeCount();
+    }
+
+    /**
+     * @param graph Snapshot analyzed by cached trees
+     * @return Estimated memory of the snapshot: offsets and nodes, targets, weights and edges of the arcs
+     */
+    private static long getSize(CsrGraph graph) {
+        return (Integer.BYTES + REFERENCE_SIZE) * (graph.getNodeCount() + 1L)
+                + (2L * Integer.BYTES + REFERENCE_SIZE) * graph.getEdgeCount();
+    }
+
+    /**
+     * Graph instance, graph version, source node and algorithm of a cached tree.
+     */
+    private static class Key {
+        private final Graph graph;
+        private final long version;
+        private final Node source;
+        private final String algorithm;
+
+        private Key(Graph graph, long version, Node source, String algorithm) {
+            this.graph = graph;
+            this.version = version;
+            this.source = source;
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return graph == key.graph && version == key.version
+                    && Objects.equals(source, key.source) && Objects.equals(algorithm, key.algorithm);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(graph), version, source, algorithm);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.CsrGraph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a single source shortest path computation: distances from the source and parent tree.
+ * Values are stored in arrays indexed by node id of the analyzed graph.
+ */
+public class ShortestPathTree {
+
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    private final CsrGraph graph;
+    private final int source;
+    private final int[] distances;
+    private final int[] parents;
+
+    /**
+     * @param graph Analyzed graph
+     * @param source Source node id
+     * @param distances Distance from the source of every node id
+     * @param parents Parent id of every node id, -1 for the source and unreachable nodes
+     */
+    public ShortestPathTree(CsrGraph graph, int source, int[] distances, int[] parents) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.parents = parents;
+    }
+
+    /**
+     * @return Analyzed graph
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return Source node id
+     */
+    public int getSourceId() {
+        return source;
+    }
+
+    /**
+     * @return Source node of the computation
+     */
+    public Node getSource() {
+        return source == -1 ? null : graph.getNode(source);
+    }
+
+    /**
+     * @return Distance of every node id, shared with the tree and not to be modified
+     */
+    int[] getDistanceArray() {
+        return distances;
+    }
+
+    /**
+     * @param id Node id
+     * @return Distance from the source, INFINITY if not reachable
+     */
+    public int getDistance(int id) {
+        return distances[id];
+    }
+
+    /**
+     * @param id Node id
+     * @return Parent id in the tree, -1 for the source and unreachable nodes
+     */
+    public int getParentId(int id) {
+        return parents[id];
+    }
+
+    /**
+     * Gets the distance from the source to a node, INFINITY if the node is not reachable.
+     * @param node Node to get distance of
+     * @return Distance from the source
+     */
+    public Integer getDistance(Node node) {
+        return contains(node) ? distances[node.getId()] : INFINITY;
+    }
+
+    /**
+     * @param node Node to get parent of
+     * @return Parent of the node in the tree, null for the source and unreachable nodes
+     */
+    public Node getParent(Node node) {
+        if (!contains(node) || parents[node.getId()] == -1) {
+            return null;
+        }
+
+        return graph.getNode(parents[node.getId()]);
+    }
+
+    /**
+     * @param node Node to check
+     * @return True if the node is reachable from the source
+     */
+    public boolean isReachable(Node node) {
+        return getDistance(node) != INFINITY;
+    }
+
+    /**
+     * Gets the path from the source to a node, following the parent tree.
+     * @param node Last node of the path
+     * @return Nodes of the path, empty if the node is not reachable
+     */
+    public List<Node> getPath(Node node) {
+        LinkedList<Node> path = new LinkedList<>();
+        if (!isReachable(node)) {
+            return path;
+        }
+
+        for (int id = node.getId(); id != -1; id = parents[id]) {
+            path.addFirst(graph.getNode(id));
+        }
+
+        return path;
+    }
+
+    /**
+     * @return Distance of every node of the graph
+     */
+    public Map<Node, Integer> getDistances() {
+        Map<Node, Integer> map = new HashMap<>();
+        for (int id = 0; id < distances.length; id++) {
+            map.put(graph.getNode(id), distances[id]);
+        }
+        return map;
+    }
+
+    /**
+     * @return Parent of every reached node
+     */
+    public Map<Node, Node> getParents() {
+        Map<Node, Node> map = new HashMap<>();
+        for (int id = 0; id < parents.length; id++) {
+            if (parents[id] != -1) {
+                map.put(graph.getNode(id), graph.getNode(parents[id]));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @param node Node to check
+     * @return True if the node has an id of the analyzed graph
+     */
+    private boolean contains(Node node) {
+        return node != null && node.getId() >= 0 && node.getId() < distances.length
+                && graph.getNode(node.getId()).equals(node);
+    }
+}
@@ -0,0 +1,263 @@
+package com.simonecavazzoni.algraph.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recording of the steps executed by the algorithm, to move backward and forward without executing it again.
+ * Every step is stored as the change it made: program counter before and after, one operation and its node
+ * with the value before and after the step, all in flat int arrays.
+ * A keyframe with the whole state is stored at regular intervals, so any step is reached from the nearest
+ * keyframe without going through the whole trace. The interval grows with the graph to keep keyframes
+ * from taking more memory than the steps.
+ */
+public class StepTrace {
+
+    /**
+     * The step changed only the program counter
+     */
+    public static final int NONE = 0;
+    /**
+     * The queue was created and the starting node inserted with priority 0
+     */
+    public static final int INIT = 1;
+    /**
+     * A node was inserted in the queue, the new value is its priority
+     */
+    public static final int PUSH = 2;
+    /**
+     * A node was extracted from the queue, the old value is the id of the node extracted before it
+     * (-1 if none) and the new value its priority
+     */
+    public static final int POP = 3;
+    /**
+     * The priority of a node in the queue changed from the old to the new value
+     */
+    public static final int UPDATE = 4;
+    /**
+     * The distance of a node changed from the old to the new value
+     */
+    public static final int DISTANCE = 5;
+    /**
+     * The parent of a node changed from the old to the new node id, -1 if none
+     */
+    public static final int PARENT = 6;
+    /**
+     * The next edge of the extracted node was selected, values are the old and new edge index
+     */
+    public static final int EDGE = 7;
+
+    private static final int MIN_KEYFRAME_INTERVAL = 256;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final int keyframeInterval;
+    private final List<Keyframe> keyframes = new ArrayList<>();
+
+    private int[] headers = new int[DEFAULT_CAPACITY];
+    private int[] nodes = new int[DEFAULT_CAPACITY];
+    private int[] oldValues = new int[DEFAULT_CAPACITY];
+    private int[] newValues = new int[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * @param nodeCount Number of nodes of the graph, used to choose the keyframe interval
+     */
+    public StepTrace(int nodeCount) {
+        keyframeInterval = Math.max(MIN_KEYFRAME_INTERVAL, nodeCount);
+    }
+
+    /**
+     * Appends a step to the trace.
+     * @param programCounter Program counter of the executed line
+     * @param nextProgramCounter Program counter after the step
+     * @param operation Change made by the step, one of the operation constants
+     * @param node Node id changed by the step, -1 if none
+     * @param oldValue Value before the step
+     * @param newValue Value after the step
+     */
+    public void add(int programCounter, int nextProgramCounter, int operation, int node, int oldValue,
+                    int newValue) {
+        if (size == headers.length) {
+            int capacity = size * 2;
+            headers = Arrays.copyOf(headers, capacity);
+            nodes = Arrays.copyOf(nodes, capacity);
+            oldValues = Arrays.copyOf(oldValues, capacity);
+            newValues = Arrays.copyOf(newValues, capacity);
+        }
+
+        headers[size] = (programCounter & 0xFF) | (nextProgramCounter & 0xFF) << 8 | operation << 16;
+        nodes[size] = node;
+        oldValues[size] = oldValue;
+        newValues[size] = newValue;
+        size++;
+    }
+
+    /**
+     * @return Number of recorded steps
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param step Step index
+     * @return Program counter of the line executed by the step
+     */
+    public int getProgramCounter(int step) {
+        return headers[step] & 0xFF;
+    }
+
+    /**
+     * @param step Step index
+     * @return Program counter after the step
+     */
+    public int getNextProgramCounter(int step) {
+        return headers[step] >>> 8 & 0xFF;
+    }
+
+    /**
+     * @param step Step index
+     * @return Change made by the step, one of the operation constants
+     */
+    public int getOperation(int step) {
+        return headers[step] >>> 16;
+    }
+
+    /**
+     * @param step Step index
+     * @return Node id changed by the step, -1 if none
+     */
+    public int getNode(int step) {
+        return nodes[step];
+    }
+
+    /**
+     * @param step Step index
+     * @return Value before the step
+     */
+    public int getOldValue(int step) {
+        return oldValues[step];
+    }
+
+    /**
+     * @param step Step index
+     * @return Value after the step
+     */
+    public int getNewValue(int step) {
+        return newValues[step];
+    }
+
+    /**
+     * Depends only on the graph size, so it can be called by any thread.
+     * @param step Number of steps executed
+     * @return True if a keyframe is expected for the state after this number of steps
+     */
+    public boolean isKeyframeStep(int step) {
+        return step > 0 && step % keyframeInterval == 0;
+    }
+
+    /**
+     * @param step Number of steps executed
+     * @return True if a keyframe is expected for the state after this number of steps and is missing
+     */
+    public boolean needsKeyframe(int step) {
+        return isKeyframeStep(step) && step / keyframeInterval == keyframes.size() + 1;
+    }
+
+    /**
+     * @param keyframe State after the number of steps returned by needsKeyframe()
+     */
+    public void addKeyframe(Keyframe keyframe) {
+        if (!needsKeyframe(keyframe.getStep())) {
+            throw new IllegalArgumentException();
+        }
+
+        keyframes.add(keyframe);
+    }
+
+    /**
+     * @param step Number of steps executed
+     * @return Latest keyframe not after the step, null if the nearest state is the initial one
+     */
+    public Keyframe getKeyframe(int step) {
+        int index = Math.min(step / keyframeInterval, keyframes.size());
+        return index == 0 ? null : keyframes.get(index - 1);
+    }
+
+    /**
+     * Whole state of the algorithm after a number of steps.
+     * Node ids are the ones of the graph, which cannot change while the algorithm is running.
+     */
+    public static class Keyframe {
+        private final int step;
+        private final int programCounter;
+        private final int u;
+        private final int edgeIndex;
+        private final int[] distances;
+        private final int[] parents;
+        private final int[] queueNodes;
+        private final int[] queuePriorities;
+        private final int[] extracted;
+
+        /**
+         * @param step Number of steps executed
+         * @param programCounter Program counter
+         * @param u Extracted node id, -1 if none
+         * @param edgeIndex Number of edges of the extracted node already analyzed
+         * @param distances Distance of every node id
+         * @param parents Parent id of every node id, -1 if none
+         * @param queueNodes Node ids inserted in the queue, in insertion order
+         * @param queuePriorities Priorities of the nodes in the queue, -1 for the nodes already extracted
+         * @param extracted Node ids extracted from the queue, in order
+         */
+        public Keyframe(int step, int programCounter, int u, int edgeIndex, int[] distances, int[] parents,
+                        int[] queueNodes, int[] queuePriorities, int[] extracted) {
+            this.step = step;
+            this.programCounter = programCounter;
+            this.u = u;
+            this.edgeIndex = edgeIndex;
+            this.distances = distances;
+            this.parents = parents;
+            this.queueNodes = queueNodes;
+            this.queuePriorities = queuePriorities;
+            this.extracted = extracted;
+        }
+
+        public int getStep() {
+            return step;
+        }
+
+        public int getProgramCounter() {
+            return programCounter;
+        }
+
+        public int getU() {
+            return u;
+        }
+
+        public int getEdgeIndex() {
+            return edgeIndex;
+        }
+
+        public int[] getDistances() {
+            return distances;
+        }
+
+        public int[] getParents() {
+            return parents;
+        }
+
+        public int[] getQueueNodes() {
+            return queueNodes;
+        }
+
+        public int[] getQueuePriorities() {
+            return queuePriorities;
+        }
+
+        public int[] getExtracted() {
+            return extracted;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.simonecavazzoni.algraph.service;
+
+/**
+ * Executes the steps of a DijkstraStepper on a background thread.
+ * Steps are published in a bounded ring buffer and moved to the StepTrace by the UI thread with drain(),
+ * the worker waits when the buffer is full so it never runs far ahead of what is shown.
+ * Keyframes expected by the trace are created by the worker, on the state it owns.
+ */
+public class StepWorker {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final DijkstraStepper stepper;
+    private final StepTrace trace;
+    private final Thread thread;
+
+    private final int[] lines;
+    private final int[] programCounters;
+    private final int[] operations;
+    private final int[] nodes;
+    private final int[] oldValues;
+    private final int[] newValues;
+    private final StepTrace.Keyframe[] keyframes;
+    private int head;
+    private int size;
+
+    private int step;
+    private boolean stopped;
+
+    /**
+     * @param stepper Stepper to execute, must not be used by other threads until the worker is stopped
+     * @param trace Trace receiving the steps, its last step must be the last one executed by the stepper
+     */
+    public StepWorker(DijkstraStepper stepper, StepTrace trace) {
+        this(stepper, trace, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param stepper Stepper to execute, must not be used by other threads until the worker is stopped
+     * @param trace Trace receiving the steps, its last step must be the last one executed by the stepper
+     * @param capacity Maximum number of steps executed and not yet drained
+     */
+    public StepWorker(DijkstraStepper stepper, StepTrace trace, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.stepper = stepper;
+        this.trace = trace;
+
+        lines = new int[capacity];
+        programCounters = new int[capacity];
+        operations = new int[capacity];
+        nodes = new int[capacity];
+        oldValues = new int[capacity];
+        newValues = new int[capacity];
+        keyframes = new StepTrace.Keyframe[capacity];
+
+        step = trace.size();
+
+        thread = new Thread(this::run, "algorithm-worker");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts executing steps until the algorithm ends or the worker is stopped.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        while (!stepper.isFinished()) {
+            synchronized (this) {
+                while (size == lines.length && !stopped) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        stopped = true;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+            }
+
+            // Space can only grow until the step is published, the UI thread is the only consumer
+            StepTrace.Keyframe keyframe = trace.isKeyframeStep(step) ? stepper.createKeyframe(step) : null;
+            stepper.step();
+
+            synchronized (this) {
+                int i = (head + size) % lines.length;
+                lines[i] = stepper.getLine();
+                programCounters[i] = stepper.getProgramCounter();
+                operations[i] = stepper.getOperation();
+                nodes[i] = stepper.getNode();
+                oldValues[i] = stepper.getOldValue();
+                newValues[i] = stepper.getNewValue();
+                keyframes[i] = keyframe;
+                size++;
+                step++;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Moves executed steps to the trace, must be called by the thread owning the trace.
+     * @param maxSteps Maximum number of steps to move
+     * @return Number of steps moved
+     */
+    public synchronized int drain(int maxSteps) {
+        int count = Math.max(Math.min(size, maxSteps), 0);
+        for (int k = 0; k < count; k++) {
+            int i = head;
+            if (keyframes[i] != null) {
+                trace.addKeyframe(keyframes[i]);
+                keyframes[i] = null;
+            }
+            trace.add(lines[i], programCounters[i], operations[i], nodes[i], oldValues[i], newValues[i]);
+            head = (head + 1) % lines.length;
+        }
+        size -= count;
+
+        if (count > 0) {
+            notifyAll();
+        }
+        return count;
+    }
+
+    /**
+     * @return True if the worker is still executing steps or some of its steps have not been drained
+     */
+    public synchronized boolean hasPendingSteps() {
+        return size > 0 || thread.isAlive();
+    }
+
+    /**
+     * Stops the worker and moves all its steps to the trace, the stepper can then be used by the caller.
+     */
+    public void stop() {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        drain(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,246 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+import com.simonecavazzoni.algraph.model.Node;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming reader of the text format written by FileHandler.
+ * The first line holds the directed flag, the second line the labels of the nodes and every other line
+ * an edge as 'label1 label2 weight', all separated by spaces.
+ * Bytes are tokenized directly from a large buffer filled by the channel, edge labels are resolved by a
+ * LabelDictionary without building Strings, and edges are added to the graph all together at the end.
+ * Labels are decoded with the default charset, used to write them.
+ */
+class TextGraphReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int TOKEN = 0;
+    private static final int LINE = 1;
+    private static final int END = 2;
+
+    private final ReadableByteChannel channel;
+    private final long total;
+    private final FileHandler.ProgressListener listener;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position;
+    private int limit;
+    private long read;
+
+    private byte[] token = new byte[64];
+    private int tokenLength;
+
+    /**
+     * @param channel Channel to read, not closed by the reader
+     * @param total Number of bytes of the channel, used for progress
+     * @param listener Listener notified every time the buffer is filled, null if none
+     */
+    TextGraphReader(ReadableByteChannel channel, long total, FileHandler.ProgressListener listener) {
+        this.channel = channel;
+        this.total = total;
+        this.listener = listener;
+    }
+
+    /**
+     * @return Graph read from the channel
+     * @throws IOException If the channel cannot be read or its content is not valid
+     */
+    Graph read() throws IOException {
+        LabelDictionary dictionary = new LabelDictionary();
+        Graph graph = readNodes(dictionary);
+
+        EdgeList edges = new EdgeList();
+        readEdges(dictionary, edges);
+        edges.addTo(graph);
+
+        return graph;
+    }
+
+    /**
+     * Reads the first two lines, with the directed flag and the labels.
+     * @param dictionary Dictionary receiving the labels of the nodes
+     * @return Graph with the nodes and no edges
+     * @throws IOException If the channel cannot be read or its content is not valid
+     */
+    Graph readNodes(LabelDictionary dictionary) throws IOException {
+        int type = next();
+        if (type == END) {
+            throw new IOException("Missing directed flag");
+        }
+        boolean directed = type == TOKEN && tokenLength == 1 && token[0] == '1';
+        if (type == TOKEN && skipLine() == END) {
+            throw new IOException("Missing node labels");
+        }
+
+        Graph graph = new Graph(directed);
+
+        type = next();
+        if (type == END) {
+            throw new IOException("Missing node labels");
+        }
+        while (type == TOKEN) {
+            Node node = graph.addNode(new String(token, 0, tokenLength, Charset.defaultCharset()));
+            if (node != null) {
+                dictionary.put(token, 0, tokenLength, node.getId());
+            }
+            type = next();
+        }
+
+        return graph;
+    }
+
+    /**
+     * Reads the edge lines until the end of the channel, edges with unknown labels are skipped.
+     * @param dictionary Dictionary of the labels of the nodes, only read
+     * @param edges List receiving the edges
+     * @throws IOException If the channel cannot be read or its content is not valid
+     */
+    void readEdges(LabelDictionary dictionary, EdgeList edges) throws IOException {
+        int type = LINE;
+        while (type != END) {
+            type = next();
+            if (type != TOKEN) {
+                // Empty line
+                continue;
+            }
+            int n1 = dictionary.get(token, 0, tokenLength);
+
+            if (next() != TOKEN) {
+                throw new IOException("Invalid edge");
+            }
+            int n2 = dictionary.get(token, 0, tokenLength);
+
+            if (next() != TOKEN) {
+                throw new IOException("Invalid edge");
+            }
+            int weight = Math.max(parseInt(token, 0, tokenLength), Edge.MIN_WEIGHT);
+
+            if (n1 != -1 && n2 != -1) {
+                edges.add(n1, n2, weight);
+            }
+            type = skipLine();
+        }
+    }
+
+    /**
+     * @return Number of bytes of the channel consumed by the reader
+     */
+    long getOffset() {
+        return read - (limit - position);
+    }
+
+    /**
+     * Reads the next token, or the end of the current line.
+     * @return TOKEN if a token has been read, LINE if the line ended, END if the channel ended
+     */
+    private int next() throws IOException {
+        tokenLength = 0;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                return tokenLength > 0 ? TOKEN : END;
+            }
+
+            byte b = buffer[position];
+            if (b == '\n') {
+                if (tokenLength > 0) {
+                    return TOKEN;
+                }
+                position++;
+                return LINE;
+            }
+
+            position++;
+            if (b == ' ' || b == '\r' || b == '\t') {
+                if (tokenLength > 0) {
+                    return TOKEN;
+                }
+                continue;
+            }
+
+            if (tokenLength == token.length) {
+                token = Arrays.copyOf(token, tokenLength * 2);
+            }
+            token[tokenLength++] = b;
+        }
+    }
+
+    /**
+     * Skips the tokens left on the current line.
+     * @return LINE if the line ended, END if the channel ended
+     */
+    private int skipLine() throws IOException {
+        int type;
+        do {
+            type = next();
+        } while (type == TOKEN);
+        return type;
+    }
+
+    /**
+     * @return False if the channel ended
+     */
+    private boolean fill() throws IOException {
+        byteBuffer.clear();
+        int count;
+        do {
+            count = channel.read(byteBuffer);
+        } while (count == 0);
+
+        if (count < 0) {
+            return false;
+        }
+
+        position = 0;
+        limit = count;
+        read += count;
+        if (listener != null) {
+            listener.onProgress(read, total);
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal integer, with an optional minus sign.
+     * @param bytes Bytes containing the number
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     * @return Parsed number
+     * @throws IOException If the bytes are not a valid int
+     */
+    static int parseInt(byte[] bytes, int offset, int length) throws IOException {
+        boolean negative = length > 0 && bytes[offset] == '-';
+        int start = negative ? offset + 1 : offset;
+        int end = offset + length;
+        if (start == end) {
+            throw new IOException("Invalid number");
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid number");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new IOException("Invalid number");
+            }
+        }
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid number");
+        }
+        return (int) value;
+    }
+}
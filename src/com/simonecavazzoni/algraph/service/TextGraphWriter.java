@@ -0,0 +1,135 @@
+package com.simonecavazzoni.algraph.service;
+
+import com.simonecavazzoni.algraph.model.Edge;
+import com.simonecavazzoni.algraph.model.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming writer of the text format read by TextGraphReader.
+ * Every token is followed by a space and every line by '\r\n', as written by the first versions of FileHandler.
+ * Labels are encoded once per node and numbers directly as bytes, everything goes through a single large
+ * buffer written to the channel when full.
+ */
+class TextGraphWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Digits of Integer.MIN_VALUE with its sign
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final WritableByteChannel channel;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    private int position;
+
+    private final byte[] digits = new byte[MAX_INT_LENGTH];
+
+    /**
+     * @param channel Channel to write, not closed by the writer
+     */
+    TextGraphWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the nodes in id order and the edges leaving every node, straight from the adjacencies.
+     * @param graph Graph to write
+     * @throws IOException If the channel cannot be written
+     */
+    void write(Graph graph) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        if (nodeCount != 0) {
+            writeToken(graph.isDirected() ? '1' : '0');
+            writeLine();
+        }
+
+        Charset charset = Charset.defaultCharset();
+        byte[][] labels = new byte[nodeCount][];
+        for (int id = 0; id < nodeCount; id++) {
+            labels[id] = graph.getNode(id).getLabel().getBytes(charset);
+            writeToken(labels[id]);
+        }
+        writeLine();
+
+        for (int id = 0; id < nodeCount; id++) {
+            for (Edge e : graph.getAdjacencies().get(graph.getNode(id))) {
+                writeToken(labels[id]);
+                writeToken(labels[e.getN2().getId()]);
+                writeToken(e.getWeight());
+                writeLine();
+            }
+        }
+
+        flush();
+    }
+
+    private void writeToken(byte[] token) throws IOException {
+        if (position + token.length + 1 > buffer.length) {
+            flush();
+        }
+
+        if (token.length >= buffer.length) {
+            ByteBuffer large = ByteBuffer.wrap(token);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+        } else {
+            System.arraycopy(token, 0, buffer, position, token.length);
+            position += token.length;
+        }
+        buffer[position++] = ' ';
+    }
+
+    private void writeToken(char c) throws IOException {
+        ensure(2);
+        buffer[position++] = (byte) c;
+        buffer[position++] = ' ';
+    }
+
+    private void writeToken(int value) throws IOException {
+        ensure(MAX_INT_LENGTH + 1);
+
+        long n = Math.abs((long) value);
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + n % 10);
+            n /= 10;
+        } while (n != 0);
+
+        if (value < 0) {
+            buffer[position++] = '-';
+        }
+        while (length > 0) {
+            buffer[position++] = digits[--length];
+        }
+        buffer[position++] = ' ';
+    }
+
+    private void writeLine() throws IOException {
+        ensure(2);
+        buffer[position++] = '\r';
+        buffer[position++] = '\n';
+    }
+
+    /**
+     * Writes the buffer if it has less than the given free bytes.
+     */
+    private void ensure(int length) throws IOException {
+        if (position + length > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        byteBuffer.clear();
+        byteBuffer.limit(position);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        position = 0;
+    }
+}
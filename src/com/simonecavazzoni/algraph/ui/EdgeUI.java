@@ -2,6 +2,7 @@ package com.simonecavazzoni.algraph.ui;
 
 import com.simonecavazzoni.algraph.res.Colors;
 import javafx.beans.InvalidationListener;
+import javafx.beans.WeakInvalidationListener;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.control.Label;
@@ -57,10 +58,10 @@ public class EdgeUI extends Group {
             label.setLabelFor(this);
             label.setFont(new Font(DEFAULT_FONT_SIZE));
 
-            edge.getN1().getUi().getCircle().centerXProperty().addListener(updater);
-            edge.getN1().getUi().getCircle().centerYProperty().addListener(updater);
-            edge.getN2().getUi().getCircle().centerXProperty().addListener(updater);
-            edge.getN2().getUi().getCircle().centerYProperty().addListener(updater);
+            edge.getN1().getUi().getCircle().centerXProperty().addListener(nodesUpdater);
+            edge.getN1().getUi().getCircle().centerYProperty().addListener(nodesUpdater);
+            edge.getN2().getUi().getCircle().centerXProperty().addListener(nodesUpdater);
+            edge.getN2().getUi().getCircle().centerYProperty().addListener(nodesUpdater);
 
             label.widthProperty().addListener(updater);
             label.heightProperty().addListener(updater);
@@ -162,6 +163,26 @@ public class EdgeUI extends Group {
         }
     };
 
+    /**
+     * Weak reference to the updater registered on the node circles,
+     * so that the nodes never keep alive the UI of a removed edge.
+     */
+    private final InvalidationListener nodesUpdater = new WeakInvalidationListener(updater);
+
+    /**
+     * Stops following the position of the linked nodes, called when the edge is removed from the graph.
+     */
+    public void dispose() {
+        if (disabled) {
+            return;
+        }
+
+        edge.getN1().getUi().getCircle().centerXProperty().removeListener(nodesUpdater);
+        edge.getN1().getUi().getCircle().centerYProperty().removeListener(nodesUpdater);
+        edge.getN2().getUi().getCircle().centerXProperty().removeListener(nodesUpdater);
+        edge.getN2().getUi().getCircle().centerYProperty().removeListener(nodesUpdater);
+    }
+
     /**
      * Sets current weight UI.
      * @param weight Current weight
@@ -2,11 +2,26 @@ package com.simonecavazzoni.algraph.utils;
 
 import javafx.application.Platform;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Set of asynchronous calls related utilities
  */
 public abstract class AsyncUtils {
 
+    /**
+     * Single daemon thread shared by all the timeouts and intervals, callbacks are then run on the UI thread
+     */
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "async-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Custom callback for asynchronous calls
      */
@@ -22,23 +37,86 @@ public abstract class AsyncUtils {
         void onError(Exception e);
     }
 
+    /**
+     * Callback for the ticks of an interval
+     */
+    public interface TickCallback {
+        /**
+         * @param ticks Number of ticks elapsed since the last call, more than one if the UI thread was busy
+         */
+        void onTick(int ticks);
+    }
+
+    /**
+     * Handle of a scheduled call, to cancel it before it runs.
+     */
+    public static class Cancellable {
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+
+        /**
+         * Cancels the call, if called on the UI thread no callback is run afterwards.
+         */
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * @return True if the call has been cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
     /**
      * Runs a runnable, waits a delay and finally calls the callback
      * @param beforeRunnable Code to run before the timeout
      * @param delay Delay after executing the runnable and before calling the callback
      * @param callback Callback called after the delay
+     * @return Handle to cancel the callback
      */
-    public static void setTimeout(Runnable beforeRunnable, int delay, AsyncCallback callback){
+    public static Cancellable setTimeout(Runnable beforeRunnable, int delay, AsyncCallback callback){
         beforeRunnable.run();
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(delay);
-                Platform.runLater(callback::onComplete);
-            }
-            catch (Exception e){
-                callback.onError(e);
+        Cancellable handle = new Cancellable();
+        try {
+            handle.future = scheduler.schedule(() -> Platform.runLater(() -> {
+                if (!handle.isCancelled()) {
+                    callback.onComplete();
+                }
+            }), delay, TimeUnit.MILLISECONDS);
+        }
+        catch (Exception e){
+            callback.onError(e);
+        }
+        return handle;
+    }
+
+    /**
+     * Calls the callback at a fixed rate, ticks are counted from the start so the rate does not drift.
+     * Ticks elapsed while the UI thread is busy are passed together to a single call.
+     * @param period Time between two ticks, in milliseconds
+     * @param callback Callback called on the UI thread
+     * @return Handle to stop the ticks
+     */
+    public static Cancellable setInterval(long period, TickCallback callback){
+        Cancellable handle = new Cancellable();
+        AtomicInteger ticks = new AtomicInteger();
+
+        handle.future = scheduler.scheduleAtFixedRate(() -> {
+            if (ticks.getAndIncrement() == 0) {
+                Platform.runLater(() -> {
+                    int count = ticks.getAndSet(0);
+                    if (!handle.isCancelled()) {
+                        callback.onTick(count);
+                    }
+                });
             }
-        }).start();
+        }, period, period, TimeUnit.MILLISECONDS);
+        return handle;
     }
 }
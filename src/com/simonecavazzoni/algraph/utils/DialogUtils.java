@@ -103,6 +103,8 @@ public abstract class DialogUtils {
 
         fileChooser.getExtensionFilters().addAll(
                 new FileChooser.ExtensionFilter(Strings.program_files, "*." + Strings.program_extension),
+                new FileChooser.ExtensionFilter(Strings.binary_program_files,
+                        "*." + Strings.binary_program_extension),
                 new FileChooser.ExtensionFilter(Strings.all_files, "*")
         );
 